@@ -0,0 +1,75 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting gathered ids into bulk delete batches and serializing each batch's request body, without calling Vault
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeleteBatchBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int ids;
+
+    @Param({"false", "true"})
+    public boolean versions;
+
+    private RecordIdStore idStore;
+
+    @Setup
+    public void setUp() {
+        idStore = new RecordIdStore(new RecordIdStore.HeapBudget(Long.MAX_VALUE));
+        for (int i = 0; i < ids; i++) {
+            String id = String.valueOf(100000 + i);
+            idStore.add(versions ? id + "_" + (i % 5) + "_" + (i % 3) : id);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        idStore.close();
+    }
+
+    @Benchmark
+    public void partition(Blackhole blackhole) {
+        Iterator<String> iterator = idStore.iterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(DeleteVaultData.nextBatch(iterator));
+        }
+    }
+
+    @Benchmark
+    public void partitionAndSerialize(Blackhole blackhole) {
+        Iterator<String> iterator = idStore.iterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(DeleteVaultData.buildRequestJson(DeleteVaultData.nextBatch(iterator), versions));
+        }
+    }
+}
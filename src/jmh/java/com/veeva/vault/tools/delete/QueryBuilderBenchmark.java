@@ -0,0 +1,88 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query building for large id lists: a single CONTAINS clause, and the bounded-size queries built for an object's
+ * query from the ids gathered for its parents, as DeleteVaultData.buildObjectQueryString does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int ids;
+
+    private List<String> idList;
+    private RecordIdStore idStore;
+
+    @Setup
+    public void setUp() {
+        idList = new ArrayList<>(ids);
+        idStore = new RecordIdStore(new RecordIdStore.HeapBudget(Long.MAX_VALUE));
+        for (int i = 0; i < ids; i++) {
+            String id = String.format("V0X%015d", i);
+            idList.add(id);
+            idStore.add(id);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        idStore.close();
+    }
+
+    @Benchmark
+    public int appendListToQuery() {
+        StringBuilder query = new StringBuilder("SELECT id FROM product__v WHERE ");
+        QueryBuilder.appendListToQuery(query, "id", idList);
+        return query.length();
+    }
+
+    @Benchmark
+    public void buildContainsQueries(Blackhole blackhole) {
+        Iterator<String> queries = QueryBuilder.buildContainsQueries("SELECT id FROM product__v WHERE ",
+                Arrays.asList(new QueryBuilder.ContainsClause("id", idList)));
+        while (queries.hasNext()) {
+            blackhole.consume(queries.next());
+        }
+    }
+
+    @Benchmark
+    public void buildSelectionQueries(Blackhole blackhole) {
+        Iterator<String> queries = QueryBuilder.buildSelectionQueries("SELECT id FROM product_detail__c", " WHERE ",
+                "status__v = 'inactive__v'", Arrays.asList(new QueryBuilder.ContainsClause("product__c", idStore)));
+        while (queries.hasNext()) {
+            blackhole.consume(queries.next());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dependency sort of synthetic object graphs:
+ * LAYERED - ten tiers, each object depending on three objects of the tier before it
+ * CHAIN   - a single chain as deep as the number of objects
+ * CYCLIC  - two random dependencies per object, forming many cycles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int objects;
+
+    @Param({"LAYERED", "CHAIN", "CYCLIC"})
+    public String shape;
+
+    private Map<String, List<String>> dependencies;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int tierSize = Math.max(1, objects / 10);
+        dependencies = new LinkedHashMap<>();
+
+        for (int i = 0; i < objects; i++) {
+            List<String> objectDependencies = new ArrayList<>();
+            switch (shape) {
+                case "LAYERED":
+                    if (i >= tierSize) {
+                        int previousTier = (i / tierSize - 1) * tierSize;
+                        for (int j = 0; j < 3; j++) {
+                            objectDependencies.add(name(previousTier + random.nextInt(tierSize)));
+                        }
+                    }
+                    break;
+                case "CHAIN":
+                    if (i > 0) {
+                        objectDependencies.add(name(i - 1));
+                    }
+                    break;
+                default:
+                    objectDependencies.add(name(random.nextInt(objects)));
+                    objectDependencies.add(name(random.nextInt(objects)));
+                    break;
+            }
+            dependencies.put(name(i), objectDependencies);
+        }
+    }
+
+    private static String name(int index) {
+        return "object_" + index + "__c";
+    }
+
+    @Benchmark
+    public SortService.SortResult sort() {
+        return SortService.sort(dependencies);
+    }
+}
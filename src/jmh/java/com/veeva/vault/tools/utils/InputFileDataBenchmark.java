@@ -0,0 +1,68 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading multi-million row input files. One row in three repeats an earlier value, and the rows are spread over ten
+ * objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class InputFileDataBenchmark {
+
+    @Param({"1000000", "3000000"})
+    public int rows;
+
+    private File inputFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        inputFile = File.createTempFile("input-file-benchmark", ".csv");
+        try (Writer writer = new BufferedWriter(new FileWriter(inputFile))) {
+            writer.write("object,idParam,idParamValue\n");
+            for (int i = 0; i < rows; i++) {
+                int value = i % 3 == 2 ? i - 1 : i;
+                writer.write("object_" + (value % 10) + "__c,external_id__c,EXT-" + value + "\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        inputFile.delete();
+    }
+
+    @Benchmark
+    public InputFileData getInputFileData() {
+        return FileUtil.getInputFileData(inputFile);
+    }
+}
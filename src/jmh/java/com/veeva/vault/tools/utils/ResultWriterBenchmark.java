@@ -0,0 +1,82 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import com.veeva.vault.tools.cli.DataToolOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output throughput in rows per second for each output format, written directly and through the AsyncResultWriter
+ * used by delete runs. Each row has the columns of the delete output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultWriterBenchmark {
+    private static final int ROWS = 100000;
+
+    @Param({"CSV", "CSV_GZIP", "JSONL", "JSONL_GZIP"})
+    public DataToolOptions.OutputFormat format;
+
+    private String[][] rows;
+    private File outputFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        FileUtil.setOutputFormat(format);
+        outputFile = File.createTempFile("result-writer-benchmark", format.getExtension());
+        rows = new String[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new String[]{"DELETE", "OBJECTS", "product__v", String.format("V0X%015d", i), "SUCCESS", "", "1"};
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void write() throws IOException {
+        ResultWriter resultWriter = FileUtil.getCsvWriter(outputFile.getPath());
+        for (String[] row : rows) {
+            resultWriter.writeNext(row);
+        }
+        resultWriter.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void writeAsync() {
+        AsyncResultWriter resultWriter = FileUtil.getResultWriter(outputFile.getPath());
+        for (String[] row : rows) {
+            resultWriter.write(row);
+        }
+        resultWriter.close();
+    }
+}
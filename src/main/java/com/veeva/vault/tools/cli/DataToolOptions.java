@@ -107,6 +107,93 @@ public class DataToolOptions extends VaultModel {
         this.set("readOnly", readOnly);
     }
 
+    //------------------------------------------------------------------------------------------------
+    // Threads: Number of concurrent workers used for bulk API calls (default 1)
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("threads")
+    public String getThreads() {
+        return this.getString("threads");
+    }
+
+    public void setThreads(String threads) {
+        this.set("threads", threads);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Page Prefetch: Number of query result pages requested ahead of processing (default 1)
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("pagePrefetch")
+    @JsonAlias({"pageprefetch"})
+    public String getPagePrefetch() {
+        return this.getString("pagePrefetch");
+    }
+
+    public void setPagePrefetch(String pagePrefetch) {
+        this.set("pagePrefetch", pagePrefetch);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Document Type Threads: Number of document types deleted concurrently (default 1)
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("documentTypeThreads")
+    @JsonAlias({"documenttypethreads"})
+    public String getDocumentTypeThreads() {
+        return this.getString("documentTypeThreads");
+    }
+
+    public void setDocumentTypeThreads(String documentTypeThreads) {
+        this.set("documentTypeThreads", documentTypeThreads);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Max Retries: Number of times a failed delete batch or record is retried (default 3)
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("maxRetries")
+    @JsonAlias({"maxretries"})
+    public String getMaxRetries() {
+        return this.getString("maxRetries");
+    }
+
+    public void setMaxRetries(String maxRetries) {
+        this.set("maxRetries", maxRetries);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Id Store Heap: Megabytes of record ids kept in memory before spilling to disk (default 256)
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("idStoreHeapMb")
+    @JsonAlias({"idstoreheapmb"})
+    public String getIdStoreHeapMb() {
+        return this.getString("idStoreHeapMb");
+    }
+
+    public void setIdStoreHeapMb(String idStoreHeapMb) {
+        this.set("idStoreHeapMb", idStoreHeapMb);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Metadata Cache: TTL in minutes (default 1440, 0 disables) and Refresh [TRUE, FALSE]
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("metadataCacheTtl")
+    @JsonAlias({"metadatacachettl"})
+    public String getMetadataCacheTtl() {
+        return this.getString("metadataCacheTtl");
+    }
+
+    public void setMetadataCacheTtl(String metadataCacheTtl) {
+        this.set("metadataCacheTtl", metadataCacheTtl);
+    }
+
+    @JsonProperty("refreshMetadata")
+    @JsonAlias({"refreshmetadata"})
+    public String getRefreshMetadata() {
+        return this.getString("refreshMetadata");
+    }
+
+    public void setRefreshMetadata(String refreshMetadata) {
+        this.set("refreshMetadata", refreshMetadata);
+    }
+
     //------------------------------------------------------------------------------------------------
     // Vault Authentication Details
     //------------------------------------------------------------------------------------------------
@@ -171,6 +258,126 @@ public class DataToolOptions extends VaultModel {
         return null;
     }
 
+    //------------------------------------------------------------------------------------------------
+    // Output format: Expected Values [CSV, CSV_GZIP, JSONL, JSONL_GZIP] (default CSV)
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("outputFormat")
+    @JsonAlias({"outputformat"})
+    public OutputFormat getOutputFormat() {
+        String outputFormat = this.getString("outputFormat");
+        if (outputFormat != null) {
+            return OutputFormat.valueOf(outputFormat);
+        }
+        return null;
+    }
+
+    public void setOutputFormat(String outputFormat) {
+        if (outputFormat != null) {
+            this.set("outputFormat", outputFormat.toUpperCase());
+        } else {
+            this.set("outputFormat", null);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Changed Only: Only recount document types changed since the last count snapshot
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("changedOnly")
+    @JsonAlias({"changedonly"})
+    public String getChangedOnly() {
+        return this.getString("changedOnly");
+    }
+
+    public void setChangedOnly(String changedOnly) {
+        this.set("changedOnly", changedOnly);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Document Scan: Query every document type in a single scan of documents instead of one query per type
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("documentScan")
+    @JsonAlias({"documentscan"})
+    public String getDocumentScan() {
+        return this.getString("documentScan");
+    }
+
+    public void setDocumentScan(String documentScan) {
+        this.set("documentScan", documentScan);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Old Versions Only: Delete the non-latest versions of documents, keeping the latest version of each
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("oldVersionsOnly")
+    @JsonAlias({"oldversionsonly"})
+    public String getOldVersionsOnly() {
+        return this.getString("oldVersionsOnly");
+    }
+
+    public void setOldVersionsOnly(String oldVersionsOnly) {
+        this.set("oldVersionsOnly", oldVersionsOnly);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Explain: Print the estimated cost of the delete plan and exit without deleting any data
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("explain")
+    public String getExplain() {
+        return this.getString("explain");
+    }
+
+    public void setExplain(String explain) {
+        this.set("explain", explain);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Metrics: Export call and phase latency metrics to JSON and Prometheus text files
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("metrics")
+    public String getMetrics() {
+        return this.getString("metrics");
+    }
+
+    public void setMetrics(String metrics) {
+        this.set("metrics", metrics);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Metrics Interval: Seconds between metrics exports
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("metricsInterval")
+    @JsonAlias({"metricsinterval"})
+    public String getMetricsInterval() {
+        return this.getString("metricsInterval");
+    }
+
+    public void setMetricsInterval(String metricsInterval) {
+        this.set("metricsInterval", metricsInterval);
+    }
+
+    //------------------------------------------------------------------------------------------------
+    // Resume: Checkpoint journal of an interrupted delete run to continue
+    //------------------------------------------------------------------------------------------------
+    @JsonProperty("resume")
+    public String getResume() {
+        return this.getString("resume");
+    }
+
+    public void setResume(String resume) {
+        this.set("resume", resume);
+    }
+
+    @JsonIgnore
+    public File getResumeFile() {
+        String resume = getResume();
+        if (resume != null) {
+            String resumeFilePath = FileSystems.getDefault().getPath(resume).normalize().toAbsolutePath().toString();
+            return new File(resumeFilePath);
+        }
+
+        return null;
+    }
+
     //------------------------------------------------------------------------------------------------
     public static DataToolOptions loadFromCliArguments(String[] cliArguments) {
         try {
@@ -220,6 +427,64 @@ public class DataToolOptions extends VaultModel {
         }
     }
 
+    /**
+     * Parses a TRUE/FALSE option, logging an error if the value is neither
+     *
+     * @param name  - name of the option
+     * @param value - value provided for the option, or null if it was not provided
+     * @return - the value, False if it was not provided, or null if it is invalid
+     */
+    public static Boolean parseBoolean(String name, String value) {
+        if (value == null) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        logger.error("Unknown value provided for " + name + "; Expected values = [TRUE, FALSE]");
+        return null;
+    }
+
+    /**
+     * Parses an option that must be a positive integer, logging an error if it is not
+     *
+     * @param name         - name of the option
+     * @param value        - value provided for the option, or null if it was not provided
+     * @param defaultValue - value used if the option was not provided
+     * @return - the value, the default if it was not provided, or null if it is invalid
+     */
+    public static Integer parsePositiveInt(String name, String value, int defaultValue) {
+        return parseInt(name, value, defaultValue, 1, "a positive integer");
+    }
+
+    /**
+     * Parses an option that must be zero or a positive integer, logging an error if it is not
+     *
+     * @param name         - name of the option
+     * @param value        - value provided for the option, or null if it was not provided
+     * @param defaultValue - value used if the option was not provided
+     * @return - the value, the default if it was not provided, or null if it is invalid
+     */
+    public static Integer parseNonNegativeInt(String name, String value, int defaultValue) {
+        return parseInt(name, value, defaultValue, 0, "a non-negative integer");
+    }
+
+    private static Integer parseInt(String name, String value, int defaultValue, int minimum, String expected) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= minimum) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        logger.error("Unknown value provided for " + name + "; Expected " + expected);
+        return null;
+    }
+
     public enum DataType {
         ALL("ALL"),
         OBJECTS("OBJECTS"),
@@ -236,6 +501,23 @@ public class DataToolOptions extends VaultModel {
         }
     }
 
+    public enum OutputFormat {
+        CSV(".csv"),
+        CSV_GZIP(".csv.gz"),
+        JSONL(".jsonl"),
+        JSONL_GZIP(".jsonl.gz");
+
+        String extension;
+
+        OutputFormat(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
     public enum Exclude {
         SYSTEM("SYSTEM"),
         STANDARD("STANDARD"),
@@ -11,6 +11,9 @@ package com.veeva.vault.tools.cli;
 import com.veeva.vault.tools.client.Client;
 import com.veeva.vault.tools.count.CountVaultData;
 import com.veeva.vault.tools.delete.DeleteVaultData;
+import com.veeva.vault.tools.services.MetadataService;
+import com.veeva.vault.tools.utils.FileUtil;
+import com.veeva.vault.tools.utils.Metrics;
 import com.veeva.vault.vapil.api.model.response.DomainResponse;
 import com.veeva.vault.vapil.api.request.DomainRequest;
 import org.apache.log4j.Logger;
@@ -42,6 +45,21 @@ public class VaultDataTools {
             return;
         }
 
+        try {
+            FileUtil.setOutputFormat(dataToolOptions.getOutputFormat());
+        } catch (IllegalArgumentException e) {
+            logger.error("Unknown output format provided; Expected values = " + Arrays.asList(DataToolOptions.OutputFormat.values()));
+            return;
+        }
+
+        Boolean metrics = DataToolOptions.parseBoolean("metrics", dataToolOptions.getMetrics());
+        Integer metricsInterval = DataToolOptions.parsePositiveInt("metricsInterval", dataToolOptions.getMetricsInterval(), 60);
+        Integer metadataCacheTtl = DataToolOptions.parseNonNegativeInt("metadataCacheTtl", dataToolOptions.getMetadataCacheTtl(), MetadataService.DEFAULT_TTL_MINUTES);
+        Boolean refreshMetadata = DataToolOptions.parseBoolean("refreshMetadata", dataToolOptions.getRefreshMetadata());
+        if (metrics == null || metricsInterval == null || metadataCacheTtl == null || refreshMetadata == null) {
+            return;
+        }
+
         try {
             Client.login(dataToolOptions);
         } catch (IllegalArgumentException illegalArgumentException) {
@@ -52,14 +70,29 @@ public class VaultDataTools {
             return;
         }
 
-        DomainResponse domainResponse = Client.getVaultClient().newRequest(DomainRequest.class)
-                .retrieveDomainInformation();
+        DomainResponse domainResponse = Client.execute(() -> Client.getVaultClient().newRequest(DomainRequest.class)
+                .retrieveDomainInformation());
 
         if (!domainResponse.getDomain().getDomainType().equalsIgnoreCase("SANDBOX")) {
             logger.error("This tool can only be run in a Sandbox domain.");
             return;
         }
 
+        if (metrics) {
+            Metrics.start(FileUtil.formatFileName(action.toString().toLowerCase() + "-metrics"), metricsInterval);
+        }
+
+        // A delete builds its plan from the relationships in the metadata, so stale metadata could leave out an object
+        // added since it was cached. Unless a TTL is given explicitly, a delete always retrieves the metadata again.
+        boolean destructive = action == DataToolOptions.Action.DELETE
+                && !"true".equalsIgnoreCase(dataToolOptions.getReadyOnly())
+                && !"true".equalsIgnoreCase(dataToolOptions.getExplain());
+        if (destructive && dataToolOptions.getMetadataCacheTtl() == null && !refreshMetadata) {
+            logger.info("Retrieving current metadata for delete; Provide -metadataCacheTtl to use cached metadata");
+            refreshMetadata = true;
+        }
+        MetadataService.loadCache(dataToolOptions.getVaultDNS(), metadataCacheTtl, refreshMetadata);
+
         switch (action) {
 
             case COUNT:
@@ -74,5 +107,9 @@ public class VaultDataTools {
 
             default:
         }
+
+        MetadataService.saveCache();
+        Client.getRequestGovernor().logUsage(true);
+        Metrics.stop();
     }
 }
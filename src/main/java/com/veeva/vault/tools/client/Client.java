@@ -9,12 +9,17 @@
 package com.veeva.vault.tools.client;
 
 import com.veeva.vault.tools.cli.DataToolOptions;
+import com.veeva.vault.tools.utils.Metrics;
 import com.veeva.vault.vapil.api.client.VaultClient;
+import com.veeva.vault.vapil.api.model.response.VaultResponse;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import java.util.function.Supplier;
+
 public class Client {
     private static VaultClient vaultClient;
+    private static final RequestGovernor requestGovernor = new RequestGovernor();
     private static final Logger LOGGER = LogManager.getLogger(Client.class);
 
     private Client() {
@@ -29,6 +34,32 @@ public class Client {
         return vaultClient;
     }
 
+    /**
+     * Executes a Vault API call through the request governor, which limits concurrent calls based on the remaining
+     * API limits. The latency of each call, excluding any wait for the governor, is recorded in the metrics by
+     * endpoint. All calls made with the VaultClient should go through this method.
+     *
+     * @param request - Vault API call to execute
+     * @return - the response of the call
+     */
+    public static <T extends VaultResponse> T execute(Supplier<T> request) {
+        return requestGovernor.execute(() -> {
+            long startTime = System.nanoTime();
+            T response = request.get();
+            Metrics.recordCall(Metrics.endpointName(response), System.nanoTime() - startTime, response == null || response.hasErrors());
+            return response;
+        });
+    }
+
+    /**
+     * Gets the request governor shared by all Vault API calls
+     *
+     * @return - Current RequestGovernor
+     */
+    public static RequestGovernor getRequestGovernor() {
+        return requestGovernor;
+    }
+
     /**
      * Authenticates to Vault and stores the VaultClient
      *
@@ -0,0 +1,266 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+
+package com.veeva.vault.tools.client;
+
+import com.veeva.vault.vapil.api.model.response.VaultResponse;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent Vault API calls based on the burst and daily limit headers of each response.
+ * <p>
+ * The concurrency limit is adjusted AIMD-style: it grows by one request per round of healthy responses and halves when
+ * the remaining burst limit drops below the low watermark or Vault reports API_LIMIT_EXCEEDED. When the remaining burst
+ * limit falls to the reserve, new requests are paused and then let through one at a time until the burst window
+ * recovers.
+ */
+public class RequestGovernor {
+    private static final Logger LOGGER = LogManager.getLogger(RequestGovernor.class);
+    private static final double LOW_WATERMARK = 0.2;
+    private static final double RESERVE_RATIO = 0.02;
+    private static final long PAUSE_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    private static final long DECREASE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long LOG_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private int maxConcurrency = 1;
+    private double concurrencyLimit = 1;
+    private int inFlight = 0;
+    private long pausedUntil = 0;
+    private long lastDecrease = 0;
+    private long lastLogged = 0;
+    private boolean dailyLimitWarned = false;
+
+    private long requestCount = 0;
+    private long throttledCount = 0;
+    private Integer burstLimit;
+    private Integer burstLimitRemaining;
+    private Integer dailyLimit;
+    private Integer dailyLimitRemaining;
+
+    /**
+     * Sets the most requests allowed in flight at once. The concurrency limit starts at, and never grows past, this
+     * value.
+     *
+     * @param maxConcurrency - maximum number of concurrent requests
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        lock.lock();
+        try {
+            this.maxConcurrency = Math.max(1, maxConcurrency);
+            this.concurrencyLimit = this.maxConcurrency;
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a permit, executes the request, and adjusts the concurrency limit from the response headers
+     *
+     * @param request - Vault API call to execute
+     * @return - the response of the call
+     */
+    public <T extends VaultResponse> T execute(Supplier<T> request) {
+        acquire();
+        T response = null;
+        try {
+            response = request.get();
+            return response;
+        } finally {
+            release(response);
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (pausedUntil > now) {
+                    permitAvailable.await(pausedUntil - now, TimeUnit.MILLISECONDS);
+                } else if (inFlight < (int) concurrencyLimit) {
+                    inFlight++;
+                    return;
+                } else {
+                    permitAvailable.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Let the call through so the interrupted caller can finish and observe the interrupt
+            Thread.currentThread().interrupt();
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(VaultResponse response) {
+        lock.lock();
+        try {
+            inFlight--;
+            requestCount++;
+            if (response != null) {
+                adjust(response);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        logUsage(false);
+    }
+
+    /**
+     * Adjusts the concurrency limit from the response. Called while holding the lock.
+     */
+    private void adjust(VaultResponse response) {
+        long now = System.currentTimeMillis();
+        boolean limitExceeded = false;
+        if (response.getErrors() != null) {
+            for (VaultResponse.APIResponseError error : response.getErrors()) {
+                if ("API_LIMIT_EXCEEDED".equalsIgnoreCase(error.getType())) {
+                    limitExceeded = true;
+                }
+            }
+        }
+
+        if (response.getHeaderBurstLimit() != null) {
+            burstLimit = response.getHeaderBurstLimit();
+        }
+        if (response.getHeaderDailyLimit() != null) {
+            dailyLimit = response.getHeaderDailyLimit();
+        }
+        if (response.getHeaderDailyLimitRemaining() != null) {
+            dailyLimitRemaining = response.getHeaderDailyLimitRemaining();
+            if (!dailyLimitWarned && dailyLimit != null && dailyLimitRemaining < dailyLimit * LOW_WATERMARK) {
+                dailyLimitWarned = true;
+                LOGGER.warn("Daily API limit is running low; " + dailyLimitRemaining + " of " + dailyLimit + " calls remaining");
+            }
+        }
+
+        Integer remaining = response.getHeaderBurstLimitRemaining();
+        if (remaining != null) {
+            burstLimitRemaining = remaining;
+        }
+
+        if (limitExceeded || (remaining != null && burstLimit != null && remaining <= reserve())) {
+            throttledCount++;
+            decrease(now);
+            if (pausedUntil <= now) {
+                LOGGER.warn("Burst API limit nearly exhausted (" + burstLimitRemaining + " remaining); pausing requests for "
+                        + TimeUnit.MILLISECONDS.toSeconds(PAUSE_MILLIS) + " seconds");
+            }
+            pausedUntil = now + PAUSE_MILLIS;
+            // Probe one request at a time after the pause, growing again as the burst window recovers
+            concurrencyLimit = 1;
+        } else if (remaining != null && burstLimit != null && remaining < burstLimit * LOW_WATERMARK) {
+            decrease(now);
+        } else if (concurrencyLimit < maxConcurrency) {
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+        }
+    }
+
+    /**
+     * Halves the concurrency limit, at most once per interval so one burst of low responses counts as a single signal
+     */
+    private void decrease(long now) {
+        if (now - lastDecrease >= DECREASE_INTERVAL_MILLIS) {
+            concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+            lastDecrease = now;
+            LOGGER.debug("Reduced API concurrency limit to " + (int) concurrencyLimit);
+        }
+    }
+
+    /**
+     * @return - number of burst calls to keep in reserve; at least enough for every request that may be in flight
+     */
+    private int reserve() {
+        return Math.max(maxConcurrency + inFlight, (int) (burstLimit * RESERVE_RATIO));
+    }
+
+    /**
+     * Logs the current API limit usage; periodically, or immediately if forced
+     *
+     * @param force - True to log regardless of when usage was last logged
+     */
+    public void logUsage(boolean force) {
+        String usage;
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (!force && now - lastLogged < LOG_INTERVAL_MILLIS) {
+                return;
+            }
+            lastLogged = now;
+            usage = "API usage: " + requestCount + " calls, " + throttledCount + " throttled"
+                    + "; burst remaining " + format(burstLimitRemaining, burstLimit)
+                    + "; daily remaining " + format(dailyLimitRemaining, dailyLimit)
+                    + "; concurrency limit " + (int) concurrencyLimit + " of " + maxConcurrency;
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.info(usage);
+    }
+
+    private static String format(Integer remaining, Integer limit) {
+        return (remaining == null ? "?" : remaining) + "/" + (limit == null ? "?" : limit);
+    }
+
+    public long getRequestCount() {
+        lock.lock();
+        try {
+            return requestCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getThrottledCount() {
+        lock.lock();
+        try {
+            return throttledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Integer getBurstLimitRemaining() {
+        lock.lock();
+        try {
+            return burstLimitRemaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Integer getDailyLimitRemaining() {
+        lock.lock();
+        try {
+            return dailyLimitRemaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+
+package com.veeva.vault.tools.count;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the totals of the last count of each object and document type, keyed by Vault DNS, so later runs can report
+ * growth since then. Each object and document type is stored with the time its count started. Safe to use from the
+ * object and document counts at the same time.
+ */
+public class CountSnapshotStore {
+    private static Logger logger = Logger.getLogger(CountSnapshotStore.class);
+    private static final String TAKEN_AT = "taken_at";
+    private static final String COUNT = "count";
+    private static final String SYSTEM_MANAGED = "system_managed";
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final File snapshotFile;
+    private final ObjectNode snapshot;
+
+    private CountSnapshotStore(File snapshotFile, ObjectNode snapshot) {
+        this.snapshotFile = snapshotFile;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Loads the snapshot store of the provided Vault, or starts an empty one
+     *
+     * @param vaultDNS - Vault DNS the counts belong to
+     * @return - CountSnapshotStore for the Vault
+     */
+    public static CountSnapshotStore load(String vaultDNS) {
+        File snapshotDirectory = new File(System.getProperty("user.home"), ".vault-data-tools" + File.separator + "count-snapshots");
+        File snapshotFile = new File(snapshotDirectory, vaultDNS.toLowerCase() + ".json");
+
+        if (snapshotFile.exists()) {
+            try {
+                JsonNode snapshot = mapper.readTree(snapshotFile);
+                if (snapshot instanceof ObjectNode) {
+                    return new CountSnapshotStore(snapshotFile, (ObjectNode) snapshot);
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to read count snapshot; growth will be reported from the next run: " + e.getMessage());
+            }
+        }
+        return new CountSnapshotStore(snapshotFile, mapper.createObjectNode());
+    }
+
+    /**
+     * Decides whether the snapshot totals of unchanged types can be reused. No version of an unchanged type was created
+     * since its snapshot, so its total can only have gone down; the totals still add up to the current total only if
+     * none of them did. The current total is taken before and after the changed types are counted, and must not move
+     * in between, so a deletion cannot be offset by growth of a changed type while it is being counted.
+     *
+     * @param reusedSnapshotTotal - sum of the snapshot totals of the unchanged types
+     * @param countedTotal        - sum of the counts of the changed types
+     * @param totalBefore         - current total of every type, taken before the changed types were counted
+     * @param totalAfter          - current total of every type, taken after the changed types were counted
+     * @return - True if the snapshot totals can be reused, False if every type must be counted
+     */
+    static boolean isReusable(long reusedSnapshotTotal, long countedTotal, long totalBefore, long totalAfter) {
+        return totalBefore == totalAfter && totalAfter == reusedSnapshotTotal + countedTotal;
+    }
+
+    /**
+     * @param section - "objects" or "documents"
+     * @param name    - object name or document type name
+     * @return - when the last count of the object or document type started, or null if it was never counted
+     */
+    public synchronized Long getTakenAt(String section, String name) {
+        JsonNode entry = snapshot.path(section).get(name);
+        return entry == null ? null : entry.path(TAKEN_AT).asLong();
+    }
+
+    /**
+     * @param section  - "objects" or "documents"
+     * @param name     - object name or document type name
+     * @param dataType - data type column of the row
+     * @return - the last counted row of the object or document type, or null if it was never counted
+     */
+    public synchronized String[] getRow(String section, String name, String dataType) {
+        JsonNode entry = snapshot.path(section).get(name);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.has(SYSTEM_MANAGED)) {
+            return new String[]{name, dataType, entry.path(COUNT).asText(), entry.path(SYSTEM_MANAGED).asText()};
+        }
+        return new String[]{name, dataType, entry.path(COUNT).asText()};
+    }
+
+    /**
+     * Compares the current counts with the last snapshot of each object or document type. Rows are sorted by growth,
+     * largest first. Objects or document types without a snapshot are reported as growing from nothing.
+     *
+     * @param section - "objects" or "documents"
+     * @param takenAt - when the current count started
+     * @param rows    - counted rows; name, data type and count
+     * @return - delta rows: name, data type, previous count, current count, change, change percent and change per day;
+     * empty if none of the rows has a snapshot
+     */
+    public synchronized List<String[]> delta(String section, long takenAt, List<String[]> rows) {
+        List<String[]> deltaRows = new ArrayList<>();
+        List<Long> changes = new ArrayList<>();
+        boolean hasSnapshot = false;
+        for (String[] row : rows) {
+            JsonNode entry = snapshot.path(section).get(row[0]);
+            long current = Long.parseLong(row[2]);
+            if (entry == null) {
+                deltaRows.add(new String[]{row[0], row[1], "", String.valueOf(current), String.valueOf(current), "", ""});
+                changes.add(current);
+                continue;
+            }
+
+            hasSnapshot = true;
+            long previousTakenAt = entry.path(TAKEN_AT).asLong();
+            if (previousTakenAt >= takenAt) {
+                continue;
+            }
+            long previous = entry.path(COUNT).asLong();
+            long change = current - previous;
+            double elapsedDays = (takenAt - previousTakenAt) / (double) TimeUnit.DAYS.toMillis(1);
+            deltaRows.add(new String[]{
+                    row[0],
+                    row[1],
+                    String.valueOf(previous),
+                    String.valueOf(current),
+                    String.valueOf(change),
+                    previous == 0 ? "" : String.format("%.2f", change * 100.0 / previous),
+                    String.format("%.2f", change / elapsedDays)
+            });
+            changes.add(change);
+        }
+
+        if (!hasSnapshot) {
+            return new ArrayList<>();
+        }
+
+        // Largest growth first
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < deltaRows.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(changes::get, Comparator.reverseOrder()));
+        List<String[]> sortedRows = new ArrayList<>(deltaRows.size());
+        for (int i : order) {
+            sortedRows.add(deltaRows.get(i));
+        }
+        return sortedRows;
+    }
+
+    /**
+     * Records the rows of the current count and writes the store to disk. Objects or document types that were not
+     * counted keep their earlier snapshot.
+     *
+     * @param section - "objects" or "documents"
+     * @param takenAt - when the current count started; rows reused from the snapshot keep their original time
+     * @param rows    - counted rows; name, data type, count and optionally system managed
+     * @param reused  - names of the rows reused from the snapshot without being counted again
+     */
+    public synchronized void save(String section, long takenAt, List<String[]> rows, Set<String> reused) {
+        if (!(snapshot.get(section) instanceof ObjectNode)) {
+            snapshot.putObject(section);
+        }
+        ObjectNode sectionNode = (ObjectNode) snapshot.get(section);
+        for (String[] row : rows) {
+            if (reused.contains(row[0])) {
+                continue;
+            }
+            ObjectNode entry = sectionNode.putObject(row[0]);
+            entry.put(TAKEN_AT, takenAt);
+            entry.put(COUNT, Long.parseLong(row[2]));
+            if (row.length > 3) {
+                entry.put(SYSTEM_MANAGED, row[3]);
+            }
+        }
+
+        try {
+            Files.createDirectories(snapshotFile.getParentFile().toPath());
+            File tempFile = new File(snapshotFile.getPath() + "." + section + ".tmp");
+            mapper.writeValue(tempFile, snapshot);
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Unable to write count snapshot [" + snapshotFile.getAbsolutePath() + "]: " + e.getMessage());
+        }
+    }
+}
@@ -8,33 +8,59 @@
 
 package com.veeva.vault.tools.count;
 
-import com.opencsv.CSVWriter;
 import com.veeva.vault.tools.cli.DataToolOptions;
 import com.veeva.vault.tools.client.Client;
+import com.veeva.vault.tools.delete.QueryBuilder;
+import com.veeva.vault.tools.delete.QueryPagePipeline;
+import com.veeva.vault.tools.services.MetadataService;
 import com.veeva.vault.tools.utils.FileUtil;
+import com.veeva.vault.tools.utils.InputFileData;
+import com.veeva.vault.tools.utils.Metrics;
+import com.veeva.vault.tools.utils.ResultWriter;
 import com.veeva.vault.vapil.api.model.metadata.VaultObject;
 import com.veeva.vault.vapil.api.model.response.DocumentTypesResponse;
-import com.veeva.vault.vapil.api.model.response.MetaDataObjectBulkResponse;
-import com.veeva.vault.vapil.api.model.response.MetaDataObjectResponse;
 import com.veeva.vault.vapil.api.model.response.QueryResponse;
-import com.veeva.vault.vapil.api.request.DocumentRequest;
-import com.veeva.vault.vapil.api.request.MetaDataRequest;
 import com.veeva.vault.vapil.api.request.QueryRequest;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class CountVaultData {
     private static Logger logger = Logger.getLogger(CountVaultData.class);
+    private static final String OBJECTS = "objects";
+    private static final String DOCUMENTS = "documents";
+    private static final int TOP_GROWERS = 5;
+    private static final int MAX_CHANGED_DOCUMENT_VERSIONS = 10000;
+    private static final long CLOCK_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
     private DataToolOptions.DataType dataType;
     private File inputFile;
     private List<DataToolOptions.Exclude> excludeSources;
-    private CSVWriter csvWriter;
     private List<String> outputFiles = new ArrayList<>();
+    private int threads = 1;
+    private ExecutorService countExecutor;
+    private CountSnapshotStore snapshotStore;
+    private boolean changedOnly = false;
+    private boolean documentScan = false;
+    private final Set<String> reusedCounts = ConcurrentHashMap.newKeySet();
 
     /**
      * Main driver method for CountVaultData. Processes the given DataToolOptions and performs data count based on
@@ -57,23 +83,55 @@ public class CountVaultData {
             excludeSources = dataToolOptions.getExcludeList();
         }
 
-        switch (dataType) {
-            case OBJECTS:
-                countObjectsHandler();
-                break;
-
-            case DOCUMENTS:
-                countDocumentsHandler();
-                break;
-
-            case ALL:
-                countObjectsHandler();
-                countDocumentsHandler();
-                break;
-
-            default:
-                logger.error("Unknown data type [" + dataType + "]; Expected values = [OBJECTS, DOCUMENTS, ALL]");
-                return;
+        Integer threadsOption = DataToolOptions.parsePositiveInt("threads", dataToolOptions.getThreads(), threads);
+        Boolean changedOnlyOption = DataToolOptions.parseBoolean("changedOnly", dataToolOptions.getChangedOnly());
+        Boolean documentScanOption = DataToolOptions.parseBoolean("documentScan", dataToolOptions.getDocumentScan());
+        if (threadsOption == null || changedOnlyOption == null || documentScanOption == null) {
+            return;
+        }
+        threads = threadsOption;
+        changedOnly = changedOnlyOption;
+        documentScan = documentScanOption;
+
+        snapshotStore = CountSnapshotStore.load(dataToolOptions.getVaultDNS());
+
+        // Worker pool shared by the object and document counts
+        countExecutor = Executors.newFixedThreadPool(threads);
+        Client.getRequestGovernor().setMaxConcurrency(threads);
+
+        try {
+            switch (dataType) {
+                case OBJECTS:
+                    outputFiles.addAll(countObjectsHandler());
+                    break;
+
+                case DOCUMENTS:
+                    outputFiles.addAll(countDocumentsHandler());
+                    break;
+
+                case ALL:
+                    // Count documents on a separate thread while the objects are counted; both submit to the same pool
+                    ExecutorService documentsHandler = Executors.newSingleThreadExecutor();
+                    try {
+                        Future<List<String>> documentsOutputFiles = documentsHandler.submit(this::countDocumentsHandler);
+                        outputFiles.addAll(countObjectsHandler());
+                        outputFiles.addAll(documentsOutputFiles.get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        logger.error("Interrupted while counting documents");
+                    } catch (ExecutionException e) {
+                        logger.error("Unexpected error counting documents: " + e.getCause().getMessage());
+                    } finally {
+                        documentsHandler.shutdownNow();
+                    }
+                    break;
+
+                default:
+                    logger.error("Unknown data type [" + dataType + "]; Expected values = [OBJECTS, DOCUMENTS, ALL]");
+                    return;
+            }
+        } finally {
+            countExecutor.shutdownNow();
         }
 
         logger.info("------------------------------------------------------------------");
@@ -84,32 +142,36 @@ public class CountVaultData {
     }
 
     /**
-     * Handles object count. Retrieves the objects and their metadata, and sends a VQL Count Query
-     * for each object. Writes the results to the output CSV.
+     * Handles object count. Retrieves the objects, then sends a VQL Count Query and retrieves the metadata for each
+     * object on the worker pool. Writes the results to the output CSV in object collection order, followed by the growth
+     * since the last snapshot.
+     *
+     * @return - names of the output files; empty if the objects could not be retrieved
      */
-    public void countObjectsHandler() {
+    public List<String> countObjectsHandler() {
         String outputFileName = FileUtil.formatFileName("count-objects-output.csv");
-        csvWriter = FileUtil.getCsvWriter(outputFileName);
+        ResultWriter csvWriter = FileUtil.getCsvWriter(outputFileName);
 
         String[] outputHeaders = new String[]{"name", "data_type", "record_count", "system_managed"};
         List<String[]> headerData = Collections.singletonList(outputHeaders);
         FileUtil.writeDataToCsv(headerData, csvWriter);
 
         // Load input file, if provided
-        HashMap<String, List<String>> providedObjectTypes = null;
+        InputFileData providedObjectTypes = null;
         if (inputFile != null) {
             providedObjectTypes = FileUtil.getInputFileData(inputFile);
         }
 
-        MetaDataObjectBulkResponse objectResponse = Client.getVaultClient().newRequest(MetaDataRequest.class)
-                .retrieveObjectCollection();
+        List<VaultObject> objects = MetadataService.retrieveObjectCollection();
 
-        if (!objectResponse.isSuccessful()) {
-            return;
+        if (objects == null) {
+            FileUtil.closeCsvWriter(csvWriter);
+            return Collections.emptyList();
         }
 
-        for (VaultObject object : objectResponse.getObjects()) {
-            List<String[]> outputData = new ArrayList<>();
+        long countStartedAt = System.currentTimeMillis();
+        List<Future<String[]>> counts = new ArrayList<>();
+        for (VaultObject object : objects) {
 
             if (providedObjectTypes != null && !providedObjectTypes.containsKey(object.getName())) {
                 continue;
@@ -120,75 +182,437 @@ public class CountVaultData {
             }
 
             String objectName = object.getName();
+            counts.add(countExecutor.submit(() -> {
+                long startTime = System.nanoTime();
+                String[] row = countObject(objectName);
+                Metrics.recordPhase("count", objectName, System.nanoTime() - startTime, 0);
+                return row;
+            }));
+        }
 
-            String query = String.format("SELECT id FROM %s PAGESIZE 0", objectName);
-            QueryResponse queryResponse = Client.getVaultClient().newRequest(QueryRequest.class)
-                    .query(query);
-
-            MetaDataObjectResponse objectMetadataResponse = Client.getVaultClient()
-                    .newRequest(MetaDataRequest.class)
-                    .retrieveObjectMetadata(objectName);
+        List<String[]> rows = writeCounts(counts, csvWriter, "objects", null);
+        FileUtil.closeCsvWriter(csvWriter);
 
-            if (queryResponse != null && !queryResponse.hasErrors()) {
-                outputData.add(new String[]{
-                        objectName,
-                        "OBJECT",
-                        String.valueOf(queryResponse.getResponseDetails().getTotal()),
-                        objectMetadataResponse.getObject().getSystemManaged().toString()
-                });
-            }
+        List<String> outputFileNames = new ArrayList<>();
+        outputFileNames.add(outputFileName);
+        outputFileNames.addAll(reportGrowth(OBJECTS, countStartedAt, rows));
+        return outputFileNames;
+    }
 
-            FileUtil.writeDataToCsv(outputData, csvWriter);
+    /**
+     * Counts the records of a single object and retrieves its metadata
+     *
+     * @param objectName - name of the object
+     * @return - output row for the object, or null if the count query failed
+     */
+    private String[] countObject(String objectName) {
+        String query = String.format("SELECT id FROM %s PAGESIZE 0", objectName);
+        QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                .query(query));
+
+        VaultObject objectMetadata = MetadataService.retrieveObjectMetadata(objectName);
+
+        if (queryResponse != null && !queryResponse.hasErrors()) {
+            return new String[]{
+                    objectName,
+                    "OBJECT",
+                    String.valueOf(queryResponse.getResponseDetails().getTotal()),
+                    objectMetadata != null ? String.valueOf(objectMetadata.getSystemManaged()) : ""
+            };
         }
-
-        FileUtil.closeCsvWriter(csvWriter);
-        outputFiles.add(outputFileName);
+        return null;
     }
 
     /**
-     * Handles document count. Retrieves all document types and sends a VQL Count Query
-     * for each document type. Writes the results to the output CSV.
+     * Handles document count. Retrieves all document types and sends a VQL Count Query for each document type on the
+     * worker pool, or in document scan mode, counts every type with a single scan of document versions. Writes the
+     * results to the output CSV in document type order, followed by the growth since the last snapshot.
+     *
+     * @return - names of the output files; empty if the document types could not be retrieved
      */
-    public void countDocumentsHandler() {
+    public List<String> countDocumentsHandler() {
         String outputFileName = FileUtil.formatFileName("count-documents-output.csv");
-        csvWriter = FileUtil.getCsvWriter(outputFileName);
+        ResultWriter csvWriter = FileUtil.getCsvWriter(outputFileName);
 
-        String[] outputHeaders = new String[]{"name", "data_type", "document_versions"};
+        // With -changedOnly, each row shows whether it was counted or reused from the last snapshot
+        String[] outputHeaders = changedOnly
+                ? new String[]{"name", "data_type", "document_versions", "source"}
+                : new String[]{"name", "data_type", "document_versions"};
         List<String[]> headerData = Collections.singletonList(outputHeaders);
         FileUtil.writeDataToCsv(headerData, csvWriter);
 
-        HashMap<String, List<String>> providedDocumentTypes = null;
+        InputFileData providedDocumentTypes = null;
         if (inputFile != null) {
             providedDocumentTypes = FileUtil.getInputFileData(inputFile);
         }
 
-        DocumentTypesResponse documentTypesResponse = Client.getVaultClient().newRequest(DocumentRequest.class)
-                .retrieveAllDocumentTypes();
+        List<DocumentTypesResponse.DocumentType> documentTypes = MetadataService.retrieveAllDocumentTypes();
 
-        if (!documentTypesResponse.isSuccessful()) {
-            return;
+        if (documentTypes == null) {
+            FileUtil.closeCsvWriter(csvWriter);
+            return Collections.emptyList();
         }
-        for (DocumentTypesResponse.DocumentType docType : documentTypesResponse.getTypes()) {
-            List<String[]> outputData = new ArrayList<>();
 
-            if (providedDocumentTypes != null && !providedDocumentTypes.containsKey(docType.getName())) {
-                continue;
+        long countStartedAt = System.currentTimeMillis();
+        List<DocumentTypesResponse.DocumentType> documentTypesToCount = new ArrayList<>();
+        for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+            if (providedDocumentTypes == null || providedDocumentTypes.containsKey(docType.getName())) {
+                documentTypesToCount.add(docType);
             }
+        }
 
-            String query = String.format("SELECT id FROM ALLVERSIONS documents WHERE type__v = '%s' PAGESIZE 0", docType.getLabel());
-            QueryResponse queryResponse = Client.getVaultClient().newRequest(QueryRequest.class)
-                    .query(query);
+        // One probe across every document type finds the types that changed since their snapshots
+        Set<String> changedDocumentTypes = changedOnly ? findChangedDocumentTypes(documentTypesToCount) : null;
+
+        List<DocumentTypesResponse.DocumentType> documentTypesToQuery = new ArrayList<>();
+        List<DocumentTypesResponse.DocumentType> documentTypesToReuse = new ArrayList<>();
+        for (DocumentTypesResponse.DocumentType docType : documentTypesToCount) {
+            String[] snapshotRow = snapshotStore.getRow(DOCUMENTS, docType.getName(), "DOCUMENT");
+            if (changedDocumentTypes == null || snapshotRow == null || changedDocumentTypes.contains(docType.getLabel())) {
+                documentTypesToQuery.add(docType);
+            } else {
+                documentTypesToReuse.add(docType);
+            }
+        }
+
+        boolean allDocumentTypes = documentTypesToCount.size() == documentTypes.size();
+        Long totalBefore = documentTypesToReuse.isEmpty() ? null : countDocumentVersions(documentTypesToCount, allDocumentTypes);
+        Map<String, Future<String[]>> typeCounts = countDocumentTypes(documentTypesToQuery, documentTypes.size());
+
+        // Deleted versions leave no modified date behind, so the snapshot is only reused while it adds up to the total
+        if (!documentTypesToReuse.isEmpty()
+                && !isSnapshotCurrent(documentTypesToCount, documentTypesToReuse, typeCounts, allDocumentTypes, totalBefore)) {
+            logger.info("Document versions were deleted since the last snapshot; Counting every document type");
+            typeCounts.putAll(countDocumentTypes(documentTypesToReuse, documentTypes.size()));
+            documentTypesToReuse.clear();
+        }
 
-            if (queryResponse != null && !queryResponse.hasErrors()) {
-                outputData.add(new String[]{
+        List<Future<String[]>> counts = new ArrayList<>();
+        for (DocumentTypesResponse.DocumentType docType : documentTypesToCount) {
+            if (documentTypesToReuse.contains(docType)) {
+                reusedCounts.add(DOCUMENTS + "." + docType.getName());
+                counts.add(CompletableFuture.completedFuture(snapshotStore.getRow(DOCUMENTS, docType.getName(), "DOCUMENT")));
+            } else {
+                counts.add(typeCounts.get(docType.getName()));
+            }
+        }
+
+        List<String[]> rows = writeCounts(counts, csvWriter, "documents", changedOnly ? DOCUMENTS : null);
+        FileUtil.closeCsvWriter(csvWriter);
+
+        List<String> outputFileNames = new ArrayList<>();
+        outputFileNames.add(outputFileName);
+        outputFileNames.addAll(reportGrowth(DOCUMENTS, countStartedAt, rows));
+        return outputFileNames;
+    }
+
+    /**
+     * Counts the document versions of the provided document types, with a single scan in document scan mode, or
+     * otherwise with a VQL Count Query for each document type on the worker pool
+     *
+     * @param documentTypes        - document types to count
+     * @param allDocumentTypeCount - number of document types in the Vault
+     * @return - count of each document type, by document type name
+     */
+    private Map<String, Future<String[]>> countDocumentTypes(List<DocumentTypesResponse.DocumentType> documentTypes, int allDocumentTypeCount) {
+        Map<String, Long> scannedCounts = null;
+        if (documentScan && !documentTypes.isEmpty()) {
+            long startTime = System.nanoTime();
+            scannedCounts = scanDocumentVersions(documentTypes, documentTypes.size() == allDocumentTypeCount);
+            Metrics.recordPhase("document_scan", "documents", System.nanoTime() - startTime, documentTypes.size());
+        }
+
+        Map<String, Future<String[]>> typeCounts = new HashMap<>();
+        for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+            if (scannedCounts != null) {
+                typeCounts.put(docType.getName(), CompletableFuture.completedFuture(new String[]{
                         docType.getName(),
                         "DOCUMENT",
-                        String.valueOf(queryResponse.getResponseDetails().getTotal())
-                });
+                        String.valueOf(scannedCounts.getOrDefault(docType.getLabel(), 0L))
+                }));
+            } else {
+                typeCounts.put(docType.getName(), countExecutor.submit(() -> {
+                    long startTime = System.nanoTime();
+                    String[] row = countDocumentType(docType);
+                    Metrics.recordPhase("count", docType.getName(), System.nanoTime() - startTime, 0);
+                    return row;
+                }));
             }
-            FileUtil.writeDataToCsv(outputData, csvWriter);
         }
-        FileUtil.closeCsvWriter(csvWriter);
-        outputFiles.add(outputFileName);
+        return typeCounts;
+    }
+
+    /**
+     * Checks the snapshot totals of the unchanged document types against a total count of document versions, taken
+     * before and again after the changed types were counted. See {@link CountSnapshotStore#isReusable}.
+     *
+     * @param documentTypes    - document types being counted
+     * @param reusedTypes      - unchanged document types whose snapshot totals would be reused
+     * @param typeCounts       - counts of the changed document types, by document type name
+     * @param allDocumentTypes - True if documentTypes holds every document type, so the total needs no filter
+     * @param totalBefore      - total taken before the changed types were counted, or null if it could not be taken
+     * @return - True if the snapshot totals can be reused, False if they are stale or could not be checked
+     */
+    private boolean isSnapshotCurrent(List<DocumentTypesResponse.DocumentType> documentTypes, List<DocumentTypesResponse.DocumentType> reusedTypes,
+                                      Map<String, Future<String[]>> typeCounts, boolean allDocumentTypes, Long totalBefore) {
+        if (totalBefore == null) {
+            return false;
+        }
+        long reusedSnapshotTotal = 0;
+        long countedTotal = 0;
+        try {
+            for (DocumentTypesResponse.DocumentType docType : reusedTypes) {
+                reusedSnapshotTotal += Long.parseLong(snapshotStore.getRow(DOCUMENTS, docType.getName(), "DOCUMENT")[2]);
+            }
+            for (Future<String[]> typeCount : typeCounts.values()) {
+                String[] row = typeCount.get();
+                if (row == null) {
+                    return false;
+                }
+                countedTotal += Long.parseLong(row[2]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | NumberFormatException e) {
+            return false;
+        }
+
+        Long totalAfter = countDocumentVersions(documentTypes, allDocumentTypes);
+        return totalAfter != null && CountSnapshotStore.isReusable(reusedSnapshotTotal, countedTotal, totalBefore, totalAfter);
+    }
+
+    /**
+     * Counts the document versions of the provided document types with PAGESIZE 0 queries
+     *
+     * @param documentTypes    - document types to count
+     * @param allDocumentTypes - True if documentTypes holds every document type, so the count needs no filter
+     * @return - total document versions, or null if a query failed
+     */
+    private Long countDocumentVersions(List<DocumentTypesResponse.DocumentType> documentTypes, boolean allDocumentTypes) {
+        List<String> labels = new ArrayList<>();
+        for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+            labels.add(docType.getLabel());
+        }
+        String query = "SELECT id FROM ALLVERSIONS documents";
+        Iterator<String> queries = allDocumentTypes
+                ? Collections.singletonList(query).iterator()
+                : QueryBuilder.buildContainsQueries(query + " WHERE ",
+                Collections.singletonList(new QueryBuilder.ContainsClause("type__v", labels)));
+
+        long total = 0;
+        while (queries.hasNext()) {
+            String totalQuery = queries.next() + " PAGESIZE 0";
+            QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                    .query(totalQuery));
+            if (queryResponse == null || queryResponse.hasErrors() || queryResponse.getResponseDetails().getTotal() == null) {
+                return null;
+            }
+            total += queryResponse.getResponseDetails().getTotal();
+        }
+        return total;
+    }
+
+    /**
+     * Finds the document types with a document version created or modified since the oldest snapshot of the provided
+     * types, by paging through the type of each such version
+     *
+     * @param documentTypes - document types to count
+     * @return - labels of the changed document types, or null if every type should be counted
+     */
+    private Set<String> findChangedDocumentTypes(List<DocumentTypesResponse.DocumentType> documentTypes) {
+        Long since = null;
+        for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+            Long takenAt = snapshotStore.getTakenAt(DOCUMENTS, docType.getName());
+            if (takenAt != null) {
+                since = since == null ? takenAt : Math.min(since, takenAt);
+            }
+        }
+        if (since == null) {
+            return null;
+        }
+
+        String query = String.format("SELECT type__v FROM ALLVERSIONS documents WHERE version_modified_date__v >= '%s'", formatDateTime(since));
+        QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                .query(query));
+        if (queryResponse == null || queryResponse.hasErrors()) {
+            return null;
+        }
+        // Counting every type is cheaper than paging through a large number of changes
+        Integer total = queryResponse.getResponseDetails().getTotal();
+        if (total == null || total > MAX_CHANGED_DOCUMENT_VERSIONS) {
+            return null;
+        }
+
+        Set<String> changedDocumentTypes = new HashSet<>();
+        while (true) {
+            for (QueryResponse.QueryResult result : queryResponse.getData()) {
+                changedDocumentTypes.add(String.valueOf(result.get("type__v")));
+            }
+            if (!queryResponse.isPaginated() || !queryResponse.getResponseDetails().hasNextPage()) {
+                return changedDocumentTypes;
+            }
+
+            String nextPage = queryResponse.getResponseDetails().getNextPage();
+            queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                    .queryByPage(nextPage));
+            if (queryResponse == null || queryResponse.hasErrors()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Counts the document versions of several document types with a single paginated scan of the type of every
+     * version, grouping the counts on the client. VQL has no GROUP BY, so the scan returns one row per version.
+     *
+     * @param documentTypes    - document types to count
+     * @param allDocumentTypes - True if documentTypes holds every document type, so the scan needs no filter
+     * @return - document version counts by document type label, or null if the scan did not complete
+     */
+    private Map<String, Long> scanDocumentVersions(List<DocumentTypesResponse.DocumentType> documentTypes, boolean allDocumentTypes) {
+        List<String> labels = new ArrayList<>();
+        for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+            labels.add(docType.getLabel());
+        }
+
+        String query = "SELECT type__v FROM ALLVERSIONS documents";
+        Iterator<String> queries = allDocumentTypes
+                ? Collections.singletonList(query).iterator()
+                : QueryBuilder.buildContainsQueries(query + " WHERE ",
+                Collections.singletonList(new QueryBuilder.ContainsClause("type__v", labels)));
+
+        Map<String, Long> versionCounts = new HashMap<>();
+        // Page producers get their own threads so they can never be starved by the count workers
+        ExecutorService pageExecutor = Executors.newCachedThreadPool();
+        try {
+            while (queries.hasNext()) {
+                try (QueryPagePipeline pages = new QueryPagePipeline(queries.next(), 2, threads, pageExecutor)) {
+                    while (pages.hasNext()) {
+                        for (QueryResponse.QueryResult result : pages.next()) {
+                            versionCounts.merge(String.valueOf(result.get("type__v")), 1L, Long::sum);
+                        }
+                    }
+                    if (!pages.isComplete()) {
+                        logger.warn("Unable to scan every document version; Counting each document type instead");
+                        return null;
+                    }
+                }
+            }
+        } finally {
+            pageExecutor.shutdownNow();
+        }
+        return versionCounts;
+    }
+
+    /**
+     * Counts the document versions of a single document type
+     *
+     * @param docType - document type
+     * @return - output row for the document type, or null if the count query failed
+     */
+    private String[] countDocumentType(DocumentTypesResponse.DocumentType docType) {
+        String query = String.format("SELECT id FROM ALLVERSIONS documents WHERE type__v = '%s' PAGESIZE 0", docType.getLabel());
+        QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                .query(query));
+
+        if (queryResponse != null && !queryResponse.hasErrors()) {
+            return new String[]{
+                    docType.getName(),
+                    "DOCUMENT",
+                    String.valueOf(queryResponse.getResponseDetails().getTotal())
+            };
+        }
+        return null;
+    }
+
+    /**
+     * Waits for each count in submission order and writes it to CSV, so the output order does not depend on which
+     * count finishes first
+     *
+     * @param counts    - submitted counts
+     * @param csvWriter - ResultWriter used to write output
+     * @param dataName  - name of the data being counted, for logging
+     * @param section   - snapshot section whose reused rows are labeled in a source column, or null for no column
+     */
+    private List<String[]> writeCounts(List<Future<String[]>> counts, ResultWriter csvWriter, String dataName, String section) {
+        List<String[]> rows = new ArrayList<>();
+        for (Future<String[]> count : counts) {
+            try {
+                String[] row = count.get();
+                if (row != null) {
+                    String[] outputRow = row;
+                    if (section != null) {
+                        outputRow = Arrays.copyOf(row, row.length + 1);
+                        outputRow[row.length] = reusedCounts.contains(section + "." + row[0]) ? "SNAPSHOT" : "COUNTED";
+                    }
+                    FileUtil.writeDataToCsv(Collections.singletonList(outputRow), csvWriter);
+                    rows.add(row);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while counting " + dataName);
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Unexpected error counting " + dataName + ": " + e.getCause().getMessage());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the growth of each counted object or document type since its last snapshot to a delta CSV, logs the top
+     * growers, and records the counts as the new snapshot
+     *
+     * @param section        - OBJECTS or DOCUMENTS snapshot section
+     * @param countStartedAt - when the count started
+     * @param rows           - counted rows, including rows reused from the snapshot
+     * @return - name of the delta file; empty if nothing was counted before
+     */
+    private List<String> reportGrowth(String section, long countStartedAt, List<String[]> rows) {
+        Set<String> reused = new HashSet<>();
+        List<String[]> countedRows = new ArrayList<>();
+        for (String[] row : rows) {
+            if (reusedCounts.contains(section + "." + row[0])) {
+                reused.add(row[0]);
+            } else {
+                countedRows.add(row);
+            }
+        }
+        if (!reused.isEmpty()) {
+            logger.info("Reused " + reused.size() + " unchanged " + section + " counts from the last snapshot");
+        }
+
+        List<String[]> deltaRows = snapshotStore.delta(section, countStartedAt, countedRows);
+        snapshotStore.save(section, countStartedAt, rows, reused);
+
+        if (deltaRows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String deltaFileName = FileUtil.formatFileName("count-" + section + "-delta-output.csv");
+        ResultWriter deltaWriter = FileUtil.getCsvWriter(deltaFileName);
+        String[] deltaHeaders = new String[]{"name", "data_type", "previous_count", "current_count", "change", "change_percent", "change_per_day"};
+        FileUtil.writeDataToCsv(Collections.singletonList(deltaHeaders), deltaWriter);
+        FileUtil.writeDataToCsv(deltaRows, deltaWriter);
+        FileUtil.closeCsvWriter(deltaWriter);
+
+        // Rows are sorted by growth, largest first
+        for (int i = 0; i < Math.min(TOP_GROWERS, deltaRows.size()); i++) {
+            String[] deltaRow = deltaRows.get(i);
+            if (Long.parseLong(deltaRow[4]) <= 0) {
+                break;
+            }
+            logger.info("Top grower: " + deltaRow[0] + " grew by " + deltaRow[4] + " (" + deltaRow[2] + " -> " + deltaRow[3] + ")");
+        }
+        return Collections.singletonList(deltaFileName);
+    }
+
+    /**
+     * @return - the time as a VQL DateTime, moved back by a margin to allow for clock differences with Vault
+     */
+    private static String formatDateTime(long epochMillis) {
+        return DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC)
+                .format(Instant.ofEpochMilli(epochMillis - CLOCK_MARGIN_MILLIS));
     }
 }
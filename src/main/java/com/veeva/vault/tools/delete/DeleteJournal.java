@@ -0,0 +1,372 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.veeva.vault.tools.utils.CompactStringSet;
+import com.veeva.vault.vapil.api.model.metadata.VaultObject;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Append-only checkpoint journal of a delete run, written alongside the output CSV. It records the plan (the objects
+ * to delete and their relationships), the ids gathered for each object, and every batch whose results were written to
+ * the output. A resumed run reads the journal back to skip the crawl and query phases and the work already done.
+ * <p>
+ * Each entry is a line of tab separated fields; lists of ids are comma separated. The journal is synced to disk at
+ * each checkpoint: the end of the plan, each group of written batches and each finished tier or document type.
+ * Gathered ids and done batches are only appended, and become durable with the next sync; entries are synced in the
+ * order they were written, so a done batch is never on disk without the ids gathered before it. A partially written
+ * last line, left by a crash, is discarded on resume.
+ */
+public class DeleteJournal implements Closeable {
+    private static Logger logger = Logger.getLogger(DeleteJournal.class);
+    private static final String VERSION = "1";
+    private static final int IDS_PER_ENTRY = 500;
+
+    private static final String JOURNAL = "JOURNAL";
+    private static final String PLAN_OBJECT = "PLAN_OBJECT";
+    private static final String PLAN_END = "PLAN_END";
+    private static final String IDS = "IDS";
+    private static final String GATHERED = "GATHERED";
+    private static final String DONE = "DONE";
+    private static final String TIER_DONE = "TIER_DONE";
+    private static final String TYPE_DONE = "TYPE_DONE";
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+    private final File file;
+    private final FileOutputStream outputStream;
+    private final BufferedWriter writer;
+
+    // State read back from an existing journal
+    private String dataType;
+    private HashMap<String, List<VaultObject.Relationship>> plan;
+    private final Set<String> gathered = new HashSet<>();
+    private final Map<String, CompactStringSet> done = new HashMap<>();
+    private final Set<Integer> tiersDone = new HashSet<>();
+    private final Set<String> typesDone = new HashSet<>();
+
+    private DeleteJournal(File file) throws IOException {
+        this.file = file;
+        this.outputStream = new FileOutputStream(file, true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Starts a new journal
+     *
+     * @param file     - journal file to create
+     * @param dataType - data type being deleted
+     * @return - the new journal
+     */
+    public static DeleteJournal create(File file, String dataType) throws IOException {
+        DeleteJournal journal = new DeleteJournal(file);
+        journal.dataType = dataType;
+        journal.append(JOURNAL, VERSION, dataType);
+        journal.sync();
+        return journal;
+    }
+
+    /**
+     * Reads an existing journal and opens it to continue appending
+     *
+     * @param file - journal file written by an earlier run
+     * @return - the journal, with the state of the earlier run
+     */
+    public static DeleteJournal resume(File file) throws IOException {
+        truncateIncompleteEntry(file);
+
+        DeleteJournal journal = new DeleteJournal(file);
+        HashMap<String, List<VaultObject.Relationship>> planEntries = new LinkedHashMap<>();
+        TypeReference<List<VaultObject.Relationship>> relationshipsType = new TypeReference<List<VaultObject.Relationship>>() {
+        };
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                switch (fields[0]) {
+                    case JOURNAL:
+                        journal.dataType = fields[2];
+                        break;
+                    case PLAN_OBJECT:
+                        planEntries.put(fields[1], mapper.readValue(fields[2], relationshipsType));
+                        break;
+                    case PLAN_END:
+                        journal.plan = planEntries;
+                        break;
+                    case GATHERED:
+                        journal.gathered.add(fields[1]);
+                        break;
+                    case DONE:
+                        CompactStringSet doneIds = journal.done.computeIfAbsent(key(fields[1], fields[2]), key -> new CompactStringSet());
+                        for (String id : fields[3].split(",")) {
+                            doneIds.add(id);
+                        }
+                        break;
+                    case TIER_DONE:
+                        journal.tiersDone.add(Integer.valueOf(fields[1]));
+                        break;
+                    case TYPE_DONE:
+                        journal.typesDone.add(fields[1]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Unreadable journal entry", e);
+        }
+
+        if (journal.dataType == null) {
+            journal.close();
+            throw new IOException("Not a delete journal [" + file.getAbsolutePath() + "]");
+        }
+        return journal;
+    }
+
+    /**
+     * Removes a partially written last entry, left if the run stopped while writing it
+     */
+    private static void truncateIncompleteEntry(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long length = randomAccessFile.length();
+            while (length > 0) {
+                randomAccessFile.seek(length - 1);
+                if (randomAccessFile.read() == '\n') {
+                    break;
+                }
+                length--;
+            }
+            if (length < randomAccessFile.length()) {
+                logger.warn("Discarding incomplete last entry of journal [" + file.getAbsolutePath() + "]");
+                randomAccessFile.setLength(length);
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return - data type of the run that wrote the journal
+     */
+    public String getDataType() {
+        return dataType;
+    }
+
+    /**
+     * @return - the objects to delete and their relationships, or null if the plan was not completely written
+     */
+    public HashMap<String, List<VaultObject.Relationship>> getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return - True if every id of the object was gathered and written to the journal
+     */
+    public boolean isGathered(String object) {
+        return gathered.contains(object);
+    }
+
+    /**
+     * @return - ids whose delete results were already written, for the target and type; empty if none
+     */
+    public CompactStringSet getDone(String target, String type) {
+        CompactStringSet doneIds = done.get(key(target, type));
+        return doneIds == null ? new CompactStringSet() : doneIds;
+    }
+
+    public boolean isTierDone(int tier) {
+        return tiersDone.contains(tier);
+    }
+
+    public boolean isTypeDone(String docType) {
+        return typesDone.contains(docType);
+    }
+
+    /**
+     * Reads back the gathered ids of every object, skipping the ids already done. The done ids of the gathered objects
+     * are only needed here, so they are released once every id has been read.
+     *
+     * @param consumer - receives each object name and id
+     */
+    public void readGatheredIds(BiConsumer<String, String> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(IDS + "\t")) {
+                    String[] fields = line.split("\t", -1);
+                    if (!gathered.contains(fields[1])) {
+                        continue;
+                    }
+                    CompactStringSet doneIds = done.get(key(fields[1], ""));
+                    for (String id : fields[2].split(",")) {
+                        if (doneIds == null || !doneIds.contains(id)) {
+                            consumer.accept(fields[1], id);
+                        }
+                    }
+                }
+            }
+        }
+        for (String object : gathered) {
+            CompactStringSet doneIds = done.remove(key(object, ""));
+            if (doneIds != null) {
+                doneIds.clear();
+            }
+        }
+    }
+
+    /**
+     * Records the objects to delete and their relationships
+     *
+     * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
+     */
+    public synchronized void writePlan(Map<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
+        try {
+            for (Map.Entry<String, List<VaultObject.Relationship>> entry : objectRelationshipHashMap.entrySet()) {
+                List<VaultObject.Relationship> relationships = entry.getValue() == null ? new ArrayList<>() : entry.getValue();
+                append(PLAN_OBJECT, entry.getKey(), mapper.writeValueAsString(relationships));
+            }
+            append(PLAN_END);
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write journal [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    /**
+     * Records every id gathered for an object. The entries are not synced on their own; an object whose GATHERED
+     * entry was lost is gathered again on resume.
+     *
+     * @param object - name of the object
+     * @param ids    - ids of the records to delete
+     */
+    public synchronized void writeGatheredIds(String object, Iterable<String> ids) {
+        try {
+            List<String> entryIds = new ArrayList<>(IDS_PER_ENTRY);
+            for (String id : ids) {
+                entryIds.add(id);
+                if (entryIds.size() == IDS_PER_ENTRY) {
+                    append(IDS, object, String.join(",", entryIds));
+                    entryIds.clear();
+                }
+            }
+            if (!entryIds.isEmpty()) {
+                append(IDS, object, String.join(",", entryIds));
+            }
+            append(GATHERED, object);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write journal [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    /**
+     * Records ids whose delete results were written to the output. The entry is not synced; call {@link #commit()}
+     * once the done entries of a group of batches are written.
+     *
+     * @param target - the target of data deletion (e.g. "documents" or the object name)
+     * @param type   - document type if target is documents, "" otherwise
+     * @param ids    - ids of the records
+     */
+    public synchronized void writeDone(String target, String type, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            append(DONE, target, type, String.join(",", ids));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write journal [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    /**
+     * Forces every entry written so far to disk
+     */
+    public synchronized void commit() {
+        try {
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write journal [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    public synchronized void writeTierDone(int tier) {
+        writeCheckpoint(TIER_DONE, String.valueOf(tier));
+    }
+
+    public synchronized void writeTypeDone(String docType) {
+        writeCheckpoint(TYPE_DONE, docType);
+    }
+
+    private void writeCheckpoint(String entry, String value) {
+        try {
+            append(entry, value);
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write journal [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    private void append(String... fields) throws IOException {
+        writer.write(String.join("\t", fields));
+        writer.write('\n');
+    }
+
+    /**
+     * Flushes the journal and forces it to disk
+     */
+    private void sync() throws IOException {
+        writer.flush();
+        FileChannel channel = outputStream.getChannel();
+        channel.force(false);
+    }
+
+    private static String key(String target, String type) {
+        return target + "\u0000" + (type == null ? "" : type);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close journal [" + file.getAbsolutePath() + "]: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import com.veeva.vault.tools.client.Client;
+import com.veeva.vault.vapil.api.model.response.QueryResponse;
+import com.veeva.vault.vapil.api.request.QueryRequest;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates the cost of a delete run from PAGESIZE 0 counts of the queries selecting each object or document type, and
+ * orders the objects of each dependency tier largest first. Starting the longest deletes first keeps the tier's workers
+ * busy until the end of the tier instead of leaving one large object running alone.
+ * <p>
+ * Time estimates assume every call takes as long as the count queries did, so they are a lower bound for deletes.
+ */
+public class DeletePlanner {
+    private static Logger logger = Logger.getLogger(DeletePlanner.class);
+
+    /**
+     * Default number of records per VQL query page
+     */
+    private static final int QUERY_PAGE_SIZE = 1000;
+
+    private final int batchSize;
+    private final int threads;
+    private final ExecutorService executor;
+    private final Map<String, Estimate> estimates = new LinkedHashMap<>();
+    private final AtomicLong countNanos = new AtomicLong();
+    private final AtomicLong countCalls = new AtomicLong();
+
+    /**
+     * @param batchSize - number of records per bulk delete call
+     * @param threads   - number of delete workers
+     * @param executor  - pool the count queries run on
+     */
+    public DeletePlanner(int batchSize, int threads, ExecutorService executor) {
+        this.batchSize = batchSize;
+        this.threads = threads;
+        this.executor = executor;
+    }
+
+    /**
+     * Counts the records of each name concurrently, summing the totals of its selection queries. Queries whose count
+     * fails are estimated at zero records.
+     *
+     * @param countQueries - name of each object or document type, mapped to the queries selecting its records
+     * @param upperBounds  - names whose queries may overlap or select more records than a run would delete
+     */
+    public void estimate(Map<String, List<String>> countQueries, Set<String> upperBounds) {
+        List<CompletableFuture<Void>> counts = new ArrayList<>();
+        for (Map.Entry<String, List<String>> countQuery : countQueries.entrySet()) {
+            Estimate estimate = new Estimate(countQuery.getKey());
+            estimate.upperBound = upperBounds.contains(countQuery.getKey());
+            synchronized (estimates) {
+                estimates.put(countQuery.getKey(), estimate);
+            }
+            for (String query : countQuery.getValue()) {
+                counts.add(CompletableFuture.runAsync(() -> count(estimate, query), executor));
+            }
+        }
+        CompletableFuture.allOf(counts.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void count(Estimate estimate, String query) {
+        long startTime = System.nanoTime();
+        QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                .query(query + " PAGESIZE 0"));
+        countNanos.addAndGet(System.nanoTime() - startTime);
+        countCalls.incrementAndGet();
+
+        if (queryResponse == null || queryResponse.hasErrors() || queryResponse.getResponseDetails().getTotal() == null) {
+            logger.warn("Unable to count " + estimate.name + " with [" + query + "]; Estimating 0 records");
+            return;
+        }
+        estimate.records.addAndGet(queryResponse.getResponseDetails().getTotal());
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - estimate of the name, or null if it was not counted
+     */
+    public Estimate get(String name) {
+        synchronized (estimates) {
+            return estimates.get(name);
+        }
+    }
+
+    /**
+     * Replaces the counted records of a name with the number of records actually selected for deletion, adding the
+     * name if it was not counted
+     *
+     * @param name    - object name or document type name
+     * @param records - number of records selected
+     */
+    public void setRecords(String name, long records) {
+        synchronized (estimates) {
+            Estimate estimate = estimates.computeIfAbsent(name, Estimate::new);
+            estimate.records.set(records);
+            estimate.upperBound = false;
+        }
+    }
+
+    /**
+     * @return - average latency of the count queries in milliseconds, used as the latency of every call
+     */
+    public double getCallMillis() {
+        long calls = countCalls.get();
+        return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(countNanos.get()) / (double) calls;
+    }
+
+    /**
+     * Orders the objects of each tier largest first. Objects without an estimate keep their place after the others.
+     *
+     * @param tiers - dependency tiers, in delete order
+     * @return - the tiers with their objects reordered
+     */
+    public List<List<String>> orderTiers(List<List<String>> tiers) {
+        List<List<String>> orderedTiers = new ArrayList<>(tiers.size());
+        for (List<String> tier : tiers) {
+            List<String> orderedTier = new ArrayList<>(tier);
+            orderedTier.sort(Comparator.comparingLong((String object) -> get(object) == null ? -1 : get(object).getRecords()).reversed());
+            orderedTiers.add(orderedTier);
+        }
+        return orderedTiers;
+    }
+
+    /**
+     * Logs the estimates of each tier in order, followed by the totals. A tier is estimated to take as long as its
+     * largest object, or its total work spread over the workers, whichever is longer.
+     *
+     * @param tiers - dependency tiers, in delete order
+     */
+    public void log(List<List<String>> tiers) {
+        double callMillis = getCallMillis();
+        long records = 0;
+        long calls = 0;
+        double totalMillis = 0;
+
+        logger.info("--------------------------------------------------------------");
+        logger.info("Delete plan");
+        for (int tierIndex = 0; tierIndex < tiers.size(); tierIndex++) {
+            double tierWorkMillis = 0;
+            double tierLongestMillis = 0;
+            logger.info("Tier " + (tierIndex + 1) + ":");
+            for (String name : tiers.get(tierIndex)) {
+                Estimate estimate = get(name);
+                if (estimate == null) {
+                    continue;
+                }
+                double estimateMillis = estimate.getCalls() * callMillis;
+                logger.info(String.format("  %s: %s%d records, %d query pages, %d delete batches, ~%.1fs",
+                        name, estimate.upperBound ? "up to " : "", estimate.getRecords(), estimate.getPages(),
+                        estimate.getBatches(), estimateMillis / 1000.0));
+                records += estimate.getRecords();
+                calls += estimate.getCalls();
+                tierWorkMillis += estimateMillis;
+                tierLongestMillis = Math.max(tierLongestMillis, estimateMillis);
+            }
+            totalMillis += Math.max(tierLongestMillis, tierWorkMillis / threads);
+        }
+        logger.info(String.format("Total: %d records, %d API calls, ~%.1fs with %d threads (%.0fms per call)",
+                records, calls, totalMillis / 1000.0, threads, callMillis));
+        logger.info("--------------------------------------------------------------");
+    }
+
+    /**
+     * Estimated work of a single object or document type
+     */
+    public class Estimate {
+        private final String name;
+        private final AtomicLong records = new AtomicLong();
+        private volatile boolean upperBound = false;
+
+        Estimate(String name) {
+            this.name = name;
+        }
+
+        public long getRecords() {
+            return records.get();
+        }
+
+        /**
+         * @return - query pages needed to list the records
+         */
+        public long getPages() {
+            return Math.max(1, (getRecords() + QUERY_PAGE_SIZE - 1) / QUERY_PAGE_SIZE);
+        }
+
+        /**
+         * @return - bulk delete calls needed to delete the records
+         */
+        public long getBatches() {
+            return (getRecords() + batchSize - 1) / batchSize;
+        }
+
+        /**
+         * @return - Vault calls needed to list and delete the records
+         */
+        public long getCalls() {
+            return getPages() + getBatches();
+        }
+    }
+}
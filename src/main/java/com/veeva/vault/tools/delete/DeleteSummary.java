@@ -0,0 +1,116 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per object and per document type totals of a delete run: records written to the output, batches sent, failures and
+ * elapsed time. Safe to update from multiple delete workers.
+ */
+public class DeleteSummary {
+    private static Logger logger = Logger.getLogger(DeleteSummary.class);
+
+    private final Map<String, Map<String, Stats>> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param dataType - OBJECTS or DOCUMENTS
+     * @param name     - object name or document type name
+     * @return - totals of the object or document type
+     */
+    public Stats get(String dataType, String name) {
+        return stats.computeIfAbsent(dataType, key -> new ConcurrentHashMap<>()).computeIfAbsent(name, key -> new Stats());
+    }
+
+    /**
+     * Logs the totals of every object or document type of the data type, slowest first
+     *
+     * @param dataType - OBJECTS or DOCUMENTS
+     */
+    public void log(String dataType) {
+        Map<String, Stats> dataTypeStats = stats.get(dataType);
+        if (dataTypeStats == null || dataTypeStats.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(dataTypeStats.entrySet());
+        entries.sort(Comparator.comparing((Map.Entry<String, Stats> entry) -> entry.getValue().getElapsedMillis()).reversed());
+
+        long records = 0;
+        long batches = 0;
+        long failures = 0;
+        logger.info("--------------------------------------------------------------");
+        logger.info(dataType + " summary");
+        for (Map.Entry<String, Stats> entry : entries) {
+            Stats entryStats = entry.getValue();
+            logger.info(String.format("%s: %d records, %d batches, %d failures, %.1fs",
+                    entry.getKey(),
+                    entryStats.getRecords(),
+                    entryStats.getBatches(),
+                    entryStats.getFailures(),
+                    entryStats.getElapsedMillis() / 1000.0));
+            records += entryStats.getRecords();
+            batches += entryStats.getBatches();
+            failures += entryStats.getFailures();
+        }
+        logger.info(String.format("Total: %d records, %d batches, %d failures", records, batches, failures));
+        logger.info("--------------------------------------------------------------");
+    }
+
+    /**
+     * Totals of a single object or document type
+     */
+    public static class Stats {
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong elapsedNanos = new AtomicLong();
+
+        /**
+         * @param failed - True if the record's delete failed
+         */
+        public void addRecord(boolean failed) {
+            records.incrementAndGet();
+            if (failed) {
+                failures.incrementAndGet();
+            }
+        }
+
+        public void addBatch() {
+            batches.incrementAndGet();
+        }
+
+        public void addElapsed(long nanos) {
+            elapsedNanos.addAndGet(nanos);
+        }
+
+        public long getRecords() {
+            return records.get();
+        }
+
+        public long getBatches() {
+            return batches.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos.get());
+        }
+    }
+}
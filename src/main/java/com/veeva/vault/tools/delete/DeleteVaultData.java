@@ -7,31 +7,63 @@
  */
 package com.veeva.vault.tools.delete;
 
-import com.opencsv.CSVWriter;
 import com.veeva.vault.tools.cli.DataToolOptions;
 import com.veeva.vault.tools.client.Client;
+import com.veeva.vault.tools.services.MetadataService;
 import com.veeva.vault.tools.services.SortService;
+import com.veeva.vault.tools.utils.AsyncResultWriter;
+import com.veeva.vault.tools.utils.CompactStringSet;
 import com.veeva.vault.tools.utils.FileUtil;
+import com.veeva.vault.tools.utils.InputFileData;
+import com.veeva.vault.tools.utils.Metrics;
 import com.veeva.vault.vapil.api.model.metadata.VaultObject;
 import com.veeva.vault.vapil.api.model.response.*;
 import com.veeva.vault.vapil.api.request.DocumentRequest;
-import com.veeva.vault.vapil.api.request.MetaDataRequest;
 import com.veeva.vault.vapil.api.request.ObjectRecordRequest;
 import com.veeva.vault.vapil.api.request.QueryRequest;
 import org.apache.log4j.Logger;
 import org.json.JSONArray;
+import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class DeleteVaultData {
     private static Logger logger = Logger.getLogger(DeleteVaultData.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String DOCUMENT_VERSIONS = "document_versions";
     private DataToolOptions.Action action;
     private DataToolOptions.DataType dataType;
-    private HashMap<String, List<String>> inputData;
+    private InputFileData inputData;
     private List<DataToolOptions.Exclude> excludeSources;
-    private CSVWriter csvWriter;
+    private AsyncResultWriter resultWriter;
     private Boolean isReadOnly;
+    private int threads = 1;
+    private int pagePrefetch = 1;
+    private int documentTypeThreads = 1;
+    private boolean documentScan = false;
+    private boolean oldVersionsOnly = false;
+    private boolean explain = false;
+    private ExecutorService batchExecutor;
+    private ExecutorService objectExecutor;
+    private ExecutorService pageExecutor;
+    private ExecutorService documentTypeExecutor;
+    private RecordIdStore.HeapBudget idStoreHeapBudget;
+    private RetryPolicy retryPolicy;
+    private final FailedRecordQueue failedRecords = new FailedRecordQueue();
+    private final DeleteSummary summary = new DeleteSummary();
+    private final Set<String> failedObjects = ConcurrentHashMap.newKeySet();
+    private DeleteJournal journal;
 
     /**
      * Main driver method for DeleteVaultData. Processes the given DataToolOptions and performs data deletion based on
@@ -72,17 +104,61 @@ public class DeleteVaultData {
             excludeSources = dataToolOptions.getExcludeList();
         }
 
-        if (dataToolOptions.getReadyOnly() != null) {
-            if (dataToolOptions.getReadyOnly().equalsIgnoreCase("true") || dataToolOptions.getReadyOnly().equalsIgnoreCase("false")) {
-                isReadOnly = Boolean.valueOf(dataToolOptions.getReadyOnly());
-            } else {
-                logger.error("Unknown value provided for readOnly; Expected values = [TRUE, FALSE]");
+        isReadOnly = DataToolOptions.parseBoolean("readOnly", dataToolOptions.getReadyOnly());
+        Integer threadsOption = DataToolOptions.parsePositiveInt("threads", dataToolOptions.getThreads(), threads);
+        Integer pagePrefetchOption = DataToolOptions.parsePositiveInt("pagePrefetch", dataToolOptions.getPagePrefetch(), pagePrefetch);
+        Integer documentTypeThreadsOption = DataToolOptions.parsePositiveInt("documentTypeThreads", dataToolOptions.getDocumentTypeThreads(), documentTypeThreads);
+        Boolean documentScanOption = DataToolOptions.parseBoolean("documentScan", dataToolOptions.getDocumentScan());
+        Boolean oldVersionsOnlyOption = DataToolOptions.parseBoolean("oldVersionsOnly", dataToolOptions.getOldVersionsOnly());
+        Boolean explainOption = DataToolOptions.parseBoolean("explain", dataToolOptions.getExplain());
+        Integer maxRetries = DataToolOptions.parseNonNegativeInt("maxRetries", dataToolOptions.getMaxRetries(), 3);
+        Integer idStoreHeapMb = DataToolOptions.parsePositiveInt("idStoreHeapMb", dataToolOptions.getIdStoreHeapMb(), 256);
+        if (isReadOnly == null || threadsOption == null || pagePrefetchOption == null || documentTypeThreadsOption == null
+                || documentScanOption == null || oldVersionsOnlyOption == null || explainOption == null
+                || maxRetries == null || idStoreHeapMb == null) {
+            return;
+        }
+        threads = threadsOption;
+        pagePrefetch = pagePrefetchOption;
+        documentTypeThreads = documentTypeThreadsOption;
+        documentScan = documentScanOption;
+        oldVersionsOnly = oldVersionsOnlyOption;
+        explain = explainOption;
+
+        if (oldVersionsOnly && dataType != DataToolOptions.DataType.DOCUMENTS) {
+            logger.error("The oldVersionsOnly option can only be used with datatype DOCUMENTS");
+            return;
+        }
+
+        retryPolicy = new RetryPolicy(maxRetries);
+        idStoreHeapBudget = new RecordIdStore.HeapBudget(idStoreHeapMb * 1024L * 1024L);
+
+        if (dataToolOptions.getResume() != null) {
+            if (isReadOnly != null && isReadOnly) {
+                logger.error("The resume option cannot be used in read-only mode");
+                return;
+            }
+            if (!resumeJournal(dataToolOptions.getResumeFile())) {
                 return;
             }
         }
 
+        // Check the input's predicates against the Vault before asking for confirmation
+        if (!validatePredicates()) {
+            closeJournal();
+            return;
+        }
+
+        // Print the estimated cost of the run and stop before any data is touched
+        if (explain) {
+            explainPlan();
+            closeJournal();
+            return;
+        }
+
         // Confirm user wants to proceed with deleting data
         if (dataType != null && !confirmDataDeletion()) {
+            closeJournal();
             return;
         }
 
@@ -91,15 +167,48 @@ public class DeleteVaultData {
             readOnlyFileNameModifier = "read-only-";
         }
         String outputFileName = FileUtil.formatFileName(readOnlyFileNameModifier + "delete-data-output.csv");
-        csvWriter = FileUtil.getCsvWriter(outputFileName);
+        resultWriter = FileUtil.getResultWriter(outputFileName);
+        if (resultWriter == null) {
+            closeJournal();
+            return;
+        }
 
-        String[] outputHeaders = {"action", "data_type", "name", "id", "status", "error_message"};
+        String[] outputHeaders = {"action", "data_type", "name", "id", "status", "error_message", "attempts"};
         if (isReadOnly != null && isReadOnly) {
             outputHeaders = new String[] {"data_type", "name", "id"};
         }
 
-        List<String[]> headerData = Collections.singletonList(outputHeaders);
-        FileUtil.writeDataToCsv(headerData, csvWriter);
+        resultWriter.write(outputHeaders);
+
+        // Checkpoint progress alongside the output, so an interrupted run can be resumed
+        if (journal == null && (isReadOnly == null || !isReadOnly)) {
+            String outputBaseName = outputFileName.substring(0, outputFileName.length() - FileUtil.getOutputFormat().getExtension().length());
+            File journalFile = new File(outputBaseName + ".journal");
+            try {
+                journal = DeleteJournal.create(journalFile, journalDataType());
+                logger.info("Writing checkpoint journal [" + journalFile.getAbsolutePath() + "]");
+            } catch (IOException e) {
+                logger.error("Unable to create checkpoint journal [" + journalFile.getAbsolutePath() + "]: " + e.getMessage());
+                resultWriter.close();
+                return;
+            }
+        }
+        if (journal != null) {
+            // Done batches are appended by the commit callbacks and synced once per written group
+            resultWriter.setGroupCommitListener(journal::commit);
+        }
+
+        // Worker pool used to keep several bulk delete batches in flight at once
+        batchExecutor = Executors.newFixedThreadPool(threads);
+        // Separate pool for objects within a dependency tier, so object tasks never wait on their own batch workers
+        objectExecutor = Executors.newFixedThreadPool(threads);
+        // Query page producers get their own threads so they can never be starved by the delete workers
+        pageExecutor = Executors.newCachedThreadPool();
+        // Document types have no ordering dependency between them, so several are queried and deleted at once
+        documentTypeExecutor = Executors.newFixedThreadPool(documentTypeThreads);
+        // Allow every delete worker and the prefetched pages of every object or document type in flight; the governor
+        // backs off from there as limits run low
+        Client.getRequestGovernor().setMaxConcurrency(threads + Math.max(threads, documentTypeThreads) * pagePrefetch);
 
         switch (dataType) {
             case OBJECTS:
@@ -116,16 +225,223 @@ public class DeleteVaultData {
                 break;
 
             default:
-                return;
+                break;
         }
 
-        FileUtil.closeCsvWriter(csvWriter);
+        shutdownExecutor(documentTypeExecutor);
+        shutdownExecutor(pageExecutor);
+        shutdownExecutor(objectExecutor);
+        shutdownExecutor(batchExecutor);
+        // Rows are written and synced before the journal closes, since the writer records their batches in it
+        resultWriter.close();
+        closeJournal();
 
         logger.info("--------------------------------------------------------------");
         logger.info("Review " + outputFileName + " for full details");
         logger.info("--------------------------------------------------------------");
     }
 
+    /**
+     * Opens the journal of an interrupted run to continue it
+     *
+     * @param journalFile - journal written by the interrupted run
+     * @return - True if the journal was loaded and matches the selected data type, otherwise False
+     */
+    private boolean resumeJournal(File journalFile) {
+        if (journalFile == null || !journalFile.exists()) {
+            logger.error("Journal does not exist [" + (journalFile == null ? "" : journalFile.getAbsolutePath()) + "]");
+            return false;
+        }
+
+        try {
+            journal = DeleteJournal.resume(journalFile);
+        } catch (IOException e) {
+            logger.error("Unable to read journal [" + journalFile.getAbsolutePath() + "]: " + e.getMessage());
+            return false;
+        }
+
+        if (!journal.getDataType().equalsIgnoreCase(journalDataType())) {
+            logger.error("Journal was written for datatype " + journal.getDataType() + "; Expected the same datatype to resume");
+            closeJournal();
+            return false;
+        }
+        logger.info("Resuming from journal [" + journalFile.getAbsolutePath() + "]");
+        return true;
+    }
+
+    /**
+     * @return - data type recorded in the journal; old version purges are kept apart from whole document deletes
+     */
+    private String journalDataType() {
+        return oldVersionsOnly ? "DOCUMENT_VERSIONS" : dataType.toString();
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Runs each WHERE predicate of the input as a PAGESIZE 0 query, so invalid fields or values are reported before
+     * anything is deleted, and logs how many records or documents it matches. Names that are document types are
+     * checked against documents of that type, all others against the object of that name.
+     *
+     * @return - True if every predicate was accepted by the Vault, otherwise False
+     */
+    private boolean validatePredicates() {
+        if (inputData == null || inputData.getPredicateNames().isEmpty()) {
+            return true;
+        }
+
+        Map<String, String> docTypeLabels = new HashMap<>();
+        if (dataType != DataToolOptions.DataType.OBJECTS) {
+            List<DocumentTypesResponse.DocumentType> documentTypes = MetadataService.retrieveAllDocumentTypes();
+            if (documentTypes != null) {
+                for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+                    docTypeLabels.put(docType.getName(), docType.getLabel());
+                }
+            }
+        }
+
+        boolean valid = true;
+        for (String name : inputData.getPredicateNames()) {
+            String query;
+            if (docTypeLabels.containsKey(name)) {
+                query = "SELECT id FROM documents WHERE type__v = '" + docTypeLabels.get(name) + "' AND " + inputData.getPredicate(name) + " PAGESIZE 0";
+            } else if (dataType == DataToolOptions.DataType.DOCUMENTS) {
+                // Not a document type, so the name is skipped like any other unknown name
+                continue;
+            } else {
+                query = "SELECT id FROM " + name + " WHERE " + inputData.getPredicate(name) + " PAGESIZE 0";
+            }
+
+            QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class)
+                    .query(query));
+            if (queryResponse == null || queryResponse.hasErrors()) {
+                logger.error("WHERE predicate for " + name + " was rejected by the Vault [" + inputData.getPredicate(name) + "]");
+                if (queryResponse != null) {
+                    handleErrors(queryResponse, false);
+                }
+                valid = false;
+            } else {
+                logger.info("WHERE predicate for " + name + " matches " + queryResponse.getResponseDetails().getTotal() + " records");
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Logs the delete plan with the estimated records, calls and time of each object and document type, without
+     * deleting or writing any data. Records are counted with the same selection queries a run would use, including
+     * idParamValues and WHERE predicates. Objects are shown in their dependency tiers, largest first within each tier.
+     */
+    private void explainPlan() {
+        objectExecutor = Executors.newFixedThreadPool(threads);
+        Client.getRequestGovernor().setMaxConcurrency(threads);
+        try {
+            if (dataType != DataToolOptions.DataType.DOCUMENTS) {
+                HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap = buildObjectPlan();
+                if (objectRelationshipHashMap != null) {
+                    SortService.SortResult sortResult = SortService.sort(objectRelationshipHashMap);
+                    Map<String, List<String>> countQueries = new LinkedHashMap<>();
+                    Set<String> upperBounds = new HashSet<>();
+                    for (String object : sortResult.getSorted()) {
+                        countQueries.put(object, buildObjectCountQueries(object, objectRelationshipHashMap, upperBounds));
+                    }
+                    DeletePlanner planner = new DeletePlanner(BATCH_SIZE, threads, objectExecutor);
+                    planner.estimate(countQueries, upperBounds);
+                    planner.log(planner.orderTiers(sortResult.getTiers()));
+                }
+            }
+
+            if (dataType != DataToolOptions.DataType.OBJECTS) {
+                List<DocumentTypesResponse.DocumentType> documentTypes = MetadataService.retrieveAllDocumentTypes();
+                if (documentTypes != null) {
+                    // Old versions are counted with the latest versions of their documents
+                    String from = oldVersionsOnly ? " FROM ALLVERSIONS documents" : " FROM documents";
+                    Map<String, List<String>> countQueries = new LinkedHashMap<>();
+                    Set<String> upperBounds = new HashSet<>();
+                    for (DocumentTypesResponse.DocumentType docType : documentTypes) {
+                        String docTypeName = docType.getName();
+                        if (inputData == null || inputData.containsKey(docTypeName)) {
+                            List<String> queries = new ArrayList<>();
+                            buildDocumentTypeQueries("SELECT id" + from + " WHERE type__v = '" + docType.getLabel() + "'", docTypeName)
+                                    .forEachRemaining(queries::add);
+                            countQueries.put(docTypeName, queries);
+
+                            // The idParamValues and predicate queries may select the same documents
+                            if (oldVersionsOnly || (inputData != null && inputData.hasIdParamValues(docTypeName) && inputData.getPredicate(docTypeName) != null)) {
+                                upperBounds.add(docTypeName);
+                            }
+                        }
+                    }
+                    DeletePlanner planner = new DeletePlanner(BATCH_SIZE, threads, objectExecutor);
+                    planner.estimate(countQueries, upperBounds);
+                    planner.log(planner.orderTiers(Collections.singletonList(new ArrayList<>(countQueries.keySet()))));
+                }
+            }
+        } finally {
+            shutdownExecutor(objectExecutor);
+        }
+    }
+
+    /**
+     * Builds the queries counting the records of an object that a run would select. The ids of related objects are
+     * only known once gathered, so each relationship to an object in the plan is counted as "field != null", which is
+     * exact when every record of the related object is deleted.
+     *
+     * @param object                    - name of the object
+     * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
+     * @param upperBounds               - names whose count may be higher than a run would delete; the object is added
+     *                                  if its relationships or overlapping queries make its count an upper bound
+     * @return - count queries of the object, empty if a run would not query it
+     */
+    private List<String> buildObjectCountQueries(String object, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap, Set<String> upperBounds) {
+        String query = "SELECT id FROM " + object;
+        if (isFullSelection(object)) {
+            return Collections.singletonList(query);
+        }
+
+        List<QueryBuilder.ContainsClause> clauses = new ArrayList<>();
+        List<String> predicates = new ArrayList<>();
+        if (inputData.containsKey(object)) {
+            if (inputData.hasIdParamValues(object)) {
+                clauses.add(new QueryBuilder.ContainsClause(inputData.getIdParam(object), inputData.getIdParamValues(object)));
+            }
+            if (inputData.getPredicate(object) != null) {
+                predicates.add(inputData.getPredicate(object));
+            }
+        }
+
+        if (objectRelationshipHashMap.get(object) != null) {
+            for (VaultObject.Relationship relationship : objectRelationshipHashMap.get(object)) {
+                String relationshipType = relationship.getRelationshipType();
+                String relatedObjectName = relationship.getObjectReference().getName();
+                if ((relationshipType.equals("reference_outbound") || relationshipType.equals("parent"))
+                        && !relatedObjectName.equals(object) && objectRelationshipHashMap.containsKey(relatedObjectName)) {
+                    predicates.add(relationship.getField() + " != null");
+                    if (!isFullSelection(relatedObjectName)) {
+                        upperBounds.add(object);
+                    }
+                }
+            }
+        }
+
+        if (clauses.isEmpty() && predicates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // The CONTAINS and predicate queries may select the same records
+        if (!clauses.isEmpty() && !predicates.isEmpty()) {
+            upperBounds.add(object);
+        }
+
+        List<String> queries = new ArrayList<>();
+        QueryBuilder.buildSelectionQueries(query, " WHERE ", predicates.isEmpty() ? null : String.join(" OR ", predicates), clauses)
+                .forEachRemaining(queries::add);
+        return queries;
+    }
+
     /**
      * Displays the data selected for deletion and prompts user to confirm with deletion.
      *
@@ -140,6 +456,9 @@ public class DeleteVaultData {
         } else {
             selectedDataToDelete = "Selected data to delete: ALL " + dataType;
         }
+        if (oldVersionsOnly) {
+            selectedDataToDelete += " (old versions only; the latest version of each document is kept)";
+        }
 
         String excludedSourcesString = "\nExcluded Object sources: ";
         if (dataType.equals(DataToolOptions.DataType.DOCUMENTS)) {
@@ -184,194 +503,464 @@ public class DeleteVaultData {
 
     /**
      * Handles object deletion. Retrieves the objects and their metadata, builds a relationship map, sorts the objects,
-     * then deletes the data in sorted order.
+     * then deletes the data one dependency tier at a time, with the objects in each tier deleted concurrently, largest
+     * first. When resuming, the plan, gathered ids and finished tiers are taken from the journal instead.
      */
     private void deleteObjectsHandler() {
 
-        MetaDataObjectBulkResponse objectResponse = Client.getVaultClient().newRequest(MetaDataRequest.class)
-                .retrieveObjectCollection();
-
-        if (objectResponse.isSuccessful()) {
-
-            HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap = new HashMap<>();
-
-            // Get each object and their relevant metadata
-            for (VaultObject object : objectResponse.getObjects()) {
-
-                if (inputData != null && !inputData.containsKey(object.getName())) {
-                    continue;
-                }
+        // A resumed run reuses the plan from the journal instead of crawling the metadata again
+        HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap = journal != null ? journal.getPlan() : null;
+        if (objectRelationshipHashMap != null) {
+            logger.info("Resuming plan of " + objectRelationshipHashMap.size() + " objects from journal");
+        } else {
+            objectRelationshipHashMap = buildObjectPlan();
+            if (objectRelationshipHashMap == null) {
+                return;
+            }
+            if (journal != null) {
+                journal.writePlan(objectRelationshipHashMap);
+            }
+        }
 
-                if (excludeSources != null && excludeSources.contains(DataToolOptions.Exclude.valueOf(object.getSource().toUpperCase()))) {
-                    continue;
+        // Sort the objects
+        SortService.SortResult sortResult = SortService.sort(objectRelationshipHashMap);
+        List<String> sorted = sortResult.getSorted();
+
+        // Objects in a cycle are deleted one after another by a single task rather than concurrently
+        HashMap<String, List<String>> cyclicGroups = new HashMap<>();
+        for (List<String> cycle : sortResult.getCycles()) {
+            if (cycle.size() > 1) {
+                logger.warn("Circular dependency between objects " + cycle + "; these will be deleted sequentially");
+                for (String object : cycle) {
+                    cyclicGroups.put(object, cycle);
                 }
+            }
+        }
 
-                if (!objectRelationshipHashMap.containsKey(object.getName())) {
+        // Build a HashMap of all the data to delete for each object
+        HashMap<String, RecordIdStore> allDataToDelete = new HashMap<>();
+        try {
+            if (journal != null && !restoreGatheredData(allDataToDelete)) {
+                return;
+            }
+            gatherObjectDataToDelete(allDataToDelete, sorted, objectRelationshipHashMap);
+            failRelatedObjects(allDataToDelete, objectRelationshipHashMap);
 
-                    MetaDataObjectResponse metaDataObjectResponse = Client.getVaultClient().newRequest(MetaDataRequest.class)
-                            .retrieveObjectMetadata(object.getName());
+            // Order each tier by the records gathered; no counts are needed
+            DeletePlanner planner = new DeletePlanner(BATCH_SIZE, threads, objectExecutor);
+            for (String object : sorted) {
+                planner.setRecords(object, allDataToDelete.containsKey(object) ? allDataToDelete.get(object).size() : 0);
+            }
+            deleteObjectsByTier(planner.orderTiers(sortResult.getTiers()), cyclicGroups, allDataToDelete);
+            summary.log("OBJECTS");
+            if (!failedObjects.isEmpty()) {
+                logger.error("Objects " + failedObjects + " were not deleted, because their data, or the data of an object related to them, could not be queried");
+            }
+        } finally {
+            for (RecordIdStore dataToDelete : allDataToDelete.values()) {
+                dataToDelete.close();
+            }
+        }
+    }
 
-                    VaultObject objectMetaData = metaDataObjectResponse.getObject();
+    /**
+     * Retrieves the objects selected for deletion and builds the map of their relationships
+     *
+     * @return - HashMap containing the objects and a list of their relationships, or null if the objects could not be
+     * retrieved
+     */
+    private HashMap<String, List<VaultObject.Relationship>> buildObjectPlan() {
+        List<VaultObject> objects = MetadataService.retrieveObjectCollection();
 
-                    // Recursively build a hashmap of all objects we need to delete and their relationships
-                    buildObjectRelationshipMap(object.getName(), objectRelationshipHashMap, objectMetaData);
-                }
-            }
+        if (objects == null) {
+            return null;
+        }
 
-            // Arrays for topological sorting
-            ArrayList<String> visited = new ArrayList<>();
-            ArrayList<String> sorted = new ArrayList<>();
+        // Get each object to delete; their metadata is retrieved while building the relationship map
+        List<String> objectsToDelete = new ArrayList<>();
+        for (VaultObject object : objects) {
 
-            // Sort the objects
-            for (String object : objectRelationshipHashMap.keySet()) {
-                SortService.topologicalSort(object, objectRelationshipHashMap, visited, sorted);
+            if (inputData != null && !inputData.containsKey(object.getName())) {
+                continue;
             }
 
-            // Build a HashMap of all the data to delete for each object
-            HashMap<String, List<QueryResponse.QueryResult>> allDataToDelete = new HashMap<>();
-            gatherObjectDataToDelete(allDataToDelete, sorted, objectRelationshipHashMap);
-
-            // Delete the data in sorted order
-            for (String object : sorted) {
-                if (allDataToDelete.containsKey(object)) {
-                    if (isReadOnly != null && isReadOnly) {
-                        writeReadOnlyResultsToCSV("OBJECTS", object, allDataToDelete.get(object));
-                    } else {
-                        deleteData(object, "", allDataToDelete.get(object));
-                    }
-                }
+            if (excludeSources != null && excludeSources.contains(DataToolOptions.Exclude.valueOf(object.getSource().toUpperCase()))) {
+                continue;
             }
+
+            objectsToDelete.add(object.getName());
         }
+
+        // Build a hashmap of all objects we need to delete and their relationships
+        return buildObjectRelationshipMap(objectsToDelete);
     }
 
     /**
-     * Recursively builds a map of objects to delete and their relationships.
+     * Loads the ids gathered by the interrupted run from the journal, leaving out the ids already deleted
      *
-     * @param objectName                - name of the current object
-     * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
-     * @param objectMetaData            - metadata of the current object
+     * @param allDataToDelete - HashMap to add the objects and the ids of their records to delete to
+     * @return - False if the journal could not be read, otherwise True
      */
-    private void buildObjectRelationshipMap(String objectName, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap, VaultObject objectMetaData) {
-        // Exclude component object classes
-        if (objectMetaData.getObjectClass().equalsIgnoreCase("COMPONENT")) {
-            return;
+    private boolean restoreGatheredData(HashMap<String, RecordIdStore> allDataToDelete) {
+        try {
+            journal.readGatheredIds((object, id) -> allDataToDelete
+                    .computeIfAbsent(object, key -> new RecordIdStore(idStoreHeapBudget))
+                    .add(id));
+        } catch (IOException e) {
+            logger.error("Unable to read journal [" + journal.getFile().getAbsolutePath() + "]: " + e.getMessage());
+            return false;
         }
+        return true;
+    }
 
-        // Add this object to the HashMap of objects to delete
-        if (!objectRelationshipHashMap.containsKey(objectName)) {
+    /**
+     * Deletes the gathered object data tier by tier, deleting the objects within each tier concurrently.
+     *
+     * @param tiers           - dependency tiers, in delete order
+     * @param cyclicGroups    - objects in a cycle, mapped to every object in that cycle
+     * @param allDataToDelete - HashMap containing the objects and the ids of their records to delete
+     */
+    private void deleteObjectsByTier(List<List<String>> tiers, HashMap<String, List<String>> cyclicGroups, HashMap<String, RecordIdStore> allDataToDelete) {
 
-            objectRelationshipHashMap.put(objectName, objectMetaData.getRelationships());
+        // Delete the data tier by tier; a tier only starts once every object in the previous tier is finished
+        for (int tierIndex = 0; tierIndex < tiers.size(); tierIndex++) {
+            List<String> tier = tiers.get(tierIndex);
+            if (journal != null && journal.isTierDone(tierIndex)) {
+                continue;
+            }
+            List<Future<?>> tierResults = new ArrayList<>();
+
+            for (String object : tier) {
+                List<String> cyclicGroup = cyclicGroups.get(object);
+                if (cyclicGroup != null) {
+                    // Submit the whole group once, from its first member
+                    if (cyclicGroup.get(0).equals(object)) {
+                        tierResults.add(objectExecutor.submit(() -> {
+                            for (String groupObject : cyclicGroup) {
+                                if (allDataToDelete.containsKey(groupObject)) {
+                                    deleteObjectData(groupObject, allDataToDelete.get(groupObject));
+                                }
+                            }
+                        }));
+                    }
+                } else if (allDataToDelete.containsKey(object)) {
+                    tierResults.add(objectExecutor.submit(() -> deleteObjectData(object, allDataToDelete.get(object))));
+                }
+            }
 
-            if (objectMetaData.getRelationships() == null) {
+            if (!awaitAll(tierResults)) {
                 return;
             }
 
-            // Recursively add dependent objects to the HashMap of objects to delete
-            for (VaultObject.Relationship relationship : objectMetaData.getRelationships()) {
+            // Records that failed with a retryable error are deleted again once the rest of the tier is gone
+            if (!replayFailedRecords()) {
+                return;
+            }
 
-                String relationshipType = relationship.getRelationshipType();
-                if (relationshipType.equals("reference_inbound") || relationshipType.equals("child")) {
+            // A tier with an object that could not be gathered is left for a resumed run to retry
+            if (journal != null && Collections.disjoint(tier, failedObjects)) {
+                journal.writeTierDone(tierIndex);
+            }
+        }
+    }
 
-                    if (!objectRelationshipHashMap.containsKey(relationship.getObjectReference().getName())) {
+    /**
+     * Deletes (or in read-only mode, writes to CSV) the data gathered for a single object.
+     *
+     * @param object       - name of the object
+     * @param dataToDelete - ids of the records to delete
+     */
+    private void deleteObjectData(String object, RecordIdStore dataToDelete) {
+        long startTime = System.nanoTime();
+        if (isReadOnly != null && isReadOnly) {
+            writeReadOnlyResultsToCSV("OBJECTS", object, dataToDelete);
+        } else {
+            deleteData(object, "", dataToDelete, null);
+        }
+        summary.get("OBJECTS", object).addElapsed(System.nanoTime() - startTime);
+        Metrics.recordPhase("delete", object, System.nanoTime() - startTime, dataToDelete.size());
+    }
 
-                        MetaDataObjectResponse metaDataObjectResponse = Client.getVaultClient().newRequest(MetaDataRequest.class)
-                                .retrieveObjectMetadata(relationship.getObjectReference().getName());
-                        objectMetaData = metaDataObjectResponse.getObject();
+    /**
+     * Waits for all the provided tasks to complete, logging any failures.
+     *
+     * @param futures - submitted tasks
+     * @return - False if interrupted while waiting, otherwise True
+     */
+    private boolean awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while deleting data");
+                return false;
+            } catch (ExecutionException e) {
+                logger.error("Unexpected error deleting data: " + e.getCause().getMessage());
+            }
+        }
+        return true;
+    }
 
-                        buildObjectRelationshipMap(relationship.getObjectReference().getName(), objectRelationshipHashMap, objectMetaData);
-                    }
-                }
+    /**
+     * Builds a map of objects to delete and their relationships. Crawls child/inbound reference relationships breadth
+     * first, retrieving metadata concurrently on the object worker pool. Requests are tracked in a shared map keyed by
+     * object name, so each object's metadata is retrieved exactly once however many objects reference it.
+     *
+     * @param objectNames - names of the objects selected for deletion
+     * @return - HashMap containing the objects and a list of their relationships
+     */
+    private HashMap<String, List<VaultObject.Relationship>> buildObjectRelationshipMap(List<String> objectNames) {
+        ConcurrentHashMap<String, CompletableFuture<VaultObject>> metadataRequests = new ConcurrentHashMap<>();
+
+        for (String objectName : objectNames) {
+            requestObjectMetadata(objectName, metadataRequests);
+        }
+
+        // Dependent objects are registered before their referencing object's request completes, so once a pass adds
+        // no new requests the crawl is finished
+        List<CompletableFuture<VaultObject>> pendingRequests;
+        do {
+            pendingRequests = new ArrayList<>(metadataRequests.values());
+            CompletableFuture.allOf(pendingRequests.toArray(new CompletableFuture[0])).join();
+        } while (pendingRequests.size() != metadataRequests.size());
+
+        HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<VaultObject>> metadataRequest : metadataRequests.entrySet()) {
+            VaultObject objectMetaData = metadataRequest.getValue().join();
+
+            // Exclude component object classes
+            if (objectMetaData != null && !objectMetaData.getObjectClass().equalsIgnoreCase("COMPONENT")) {
+                objectRelationshipHashMap.put(metadataRequest.getKey(), objectMetaData.getRelationships());
             }
         }
+        return objectRelationshipHashMap;
+    }
+
+    /**
+     * Retrieves the metadata for an object, unless already requested, then requests the metadata of its dependent
+     * objects.
+     *
+     * @param objectName       - name of the object
+     * @param metadataRequests - in-flight and completed metadata requests keyed by object name
+     * @return - future holding the object's metadata, or null if it could not be retrieved
+     */
+    private CompletableFuture<VaultObject> requestObjectMetadata(String objectName, ConcurrentHashMap<String, CompletableFuture<VaultObject>> metadataRequests) {
+        return metadataRequests.computeIfAbsent(objectName, name -> CompletableFuture
+                .supplyAsync(() -> {
+                    long startTime = System.nanoTime();
+                    VaultObject objectMetaData = MetadataService.retrieveObjectMetadata(name);
+                    Metrics.recordPhase("metadata", name, System.nanoTime() - startTime, 0);
+                    return objectMetaData;
+                }, objectExecutor)
+                .exceptionally(e -> {
+                    logger.error("Unable to retrieve metadata for object [" + name + "]: " + e.getMessage());
+                    return null;
+                })
+                .thenApplyAsync(objectMetaData -> {
+                    // Component objects are excluded, so their relationships are not followed
+                    if (objectMetaData != null && !objectMetaData.getObjectClass().equalsIgnoreCase("COMPONENT")
+                            && objectMetaData.getRelationships() != null) {
+
+                        for (VaultObject.Relationship relationship : objectMetaData.getRelationships()) {
+
+                            String relationshipType = relationship.getRelationshipType();
+                            if (relationshipType.equals("reference_inbound") || relationshipType.equals("child")) {
+                                requestObjectMetadata(relationship.getObjectReference().getName(), metadataRequests);
+                            }
+                        }
+                    }
+                    return objectMetaData;
+                }, objectExecutor));
     }
 
     /**
      * Gathers all the object data to delete. Iterates through sorted objects in reverse order, queries for the data to
      * delete, and stores it in a HashMap.
      *
-     * @param allDataToDelete           - HashMap containing the objects and a list of its QueryResults to delete
+     * @param allDataToDelete           - HashMap containing the objects and the ids of their records to delete
      * @param sorted                    - sorted list of objects to delete
      * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
      */
-    private void gatherObjectDataToDelete(HashMap<String, List<QueryResponse.QueryResult>> allDataToDelete, ArrayList<String> sorted, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
+    private void gatherObjectDataToDelete(HashMap<String, RecordIdStore> allDataToDelete, List<String> sorted, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
         // Iterate through the sorted objects to delete in reverse order a query for the data to delete for each
         for (int count = sorted.size() - 1; count >= 0; count--) {
             String objectName = sorted.get(count);
 
-            String query = buildObjectQueryString(objectName, allDataToDelete, objectRelationshipHashMap);
+            // Already gathered by the interrupted run being resumed
+            if (journal != null && journal.isGathered(objectName)) {
+                continue;
+            }
 
-            if (!query.isEmpty()) {
-                List<QueryResponse.QueryResult> dataList = queryHandler(query);
+            // The selection of a failed parent cannot drive the selection of its children
+            String failedParent = findFailedParent(objectName, objectRelationshipHashMap);
+            if (failedParent != null) {
+                logger.error("Unable to select data to delete for " + objectName + " because " + failedParent + " failed; " + objectName + " will not be deleted");
+                failedObjects.add(objectName);
+                continue;
+            }
+
+            Iterator<String> queries = buildObjectQueryString(objectName, allDataToDelete, objectRelationshipHashMap);
+
+            if (queries.hasNext()) {
+                long startTime = System.nanoTime();
+                RecordIdStore dataList = queryHandler(queries);
+                if (dataList == null) {
+                    // A partial selection would also drive a partial selection of the object's children
+                    logger.error("Unable to query data to delete for " + objectName + "; " + objectName + " will not be deleted");
+                    failedObjects.add(objectName);
+                    continue;
+                }
+                Metrics.recordPhase("gather", objectName, System.nanoTime() - startTime, dataList.size());
+                if (journal != null) {
+                    journal.writeGatheredIds(objectName, dataList);
+                }
                 if (!dataList.isEmpty()) {
                     allDataToDelete.put(objectName, dataList);
+                } else {
+                    dataList.close();
                 }
             }
         }
     }
 
     /**
-     * Builds the query string for an object based on the provided data to delete and the object's relationships
+     * @param object                    - name of the object
+     * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
+     * @return - name of a failed object the object references, or null if there is none
+     */
+    private String findFailedParent(String object, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
+        if (objectRelationshipHashMap.get(object) != null) {
+            for (VaultObject.Relationship relationship : objectRelationshipHashMap.get(object)) {
+                String relationshipType = relationship.getRelationshipType();
+                String relatedObjectName = relationship.getObjectReference().getName();
+                if ((relationshipType.equals("reference_outbound") || relationshipType.equals("parent"))
+                        && failedObjects.contains(relatedObjectName)) {
+                    return relatedObjectName;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extends the failed objects to every object related to one, directly or through other objects, and drops their
+     * gathered data. The parents of a failed object cannot be deleted while its records still reference them, and the
+     * children of an object that is not deleted were only selected because it was going to be.
+     *
+     * @param allDataToDelete           - HashMap containing the objects and the ids of their records to delete
+     * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
+     */
+    private void failRelatedObjects(HashMap<String, RecordIdStore> allDataToDelete, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
+        if (failedObjects.isEmpty()) {
+            return;
+        }
+
+        // Relationships between the objects in the plan, in both directions
+        Map<String, Set<String>> relatedObjects = new HashMap<>();
+        for (Map.Entry<String, List<VaultObject.Relationship>> entry : objectRelationshipHashMap.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            for (VaultObject.Relationship relationship : entry.getValue()) {
+                String relationshipType = relationship.getRelationshipType();
+                String relatedObjectName = relationship.getObjectReference().getName();
+                if ((relationshipType.equals("reference_outbound") || relationshipType.equals("parent"))
+                        && objectRelationshipHashMap.containsKey(relatedObjectName)) {
+                    relatedObjects.computeIfAbsent(entry.getKey(), key -> new HashSet<>()).add(relatedObjectName);
+                    relatedObjects.computeIfAbsent(relatedObjectName, key -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+        }
+
+        Deque<String> toVisit = new ArrayDeque<>(failedObjects);
+        while (!toVisit.isEmpty()) {
+            for (String relatedObjectName : relatedObjects.getOrDefault(toVisit.poll(), Collections.emptySet())) {
+                if (failedObjects.add(relatedObjectName)) {
+                    toVisit.add(relatedObjectName);
+                }
+            }
+        }
+
+        for (String object : failedObjects) {
+            RecordIdStore dataToDelete = allDataToDelete.remove(object);
+            if (dataToDelete != null) {
+                logger.error(object + " is related to an object whose data could not be queried; " + object + " will not be deleted");
+                dataToDelete.close();
+            }
+        }
+    }
+
+    /**
+     * Builds the query strings for an object based on the provided data to delete and the object's relationships.
+     * Large CONTAINS clauses are split across several bounded-size queries, and WHERE predicates from the input and
+     * from relationships to fully deleted objects are queried on their own; the union of their results is the data to
+     * delete.
      *
      * @param object                    - name of the current object
-     * @param allDataToDelete           - HashMap containing the objects and a list of its QueryResults to delete
+     * @param allDataToDelete           - HashMap containing the objects and the ids of their records to delete
      * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
-     * @return - the query string for this object
+     * @return - Iterator of query strings for this object, empty if this object should not be queried
      */
-    private String buildObjectQueryString(String object, HashMap<String, List<QueryResponse.QueryResult>> allDataToDelete, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
-        StringBuilder query = new StringBuilder();
-        query.append("SELECT id FROM ");
-        query.append(object);
+    private Iterator<String> buildObjectQueryString(String object, HashMap<String, RecordIdStore> allDataToDelete, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
+        String query = "SELECT id FROM " + object;
+        List<QueryBuilder.ContainsClause> clauses = new ArrayList<>();
+        List<String> predicates = new ArrayList<>();
 
         if (inputData != null) {
             // If the input contains this object, add those idParamValues and ids from dependencies to the query
             if (inputData.containsKey(object)) {
 
-                // Only add idParamValues to the query if provided in the input
-                if (inputData.get(object).size() > 1) {
-                    String idParam = inputData.get(object).get(0);
-                    int paramValuesSize = inputData.get(object).size();
-                    List<String> idParamValues = inputData.get(object).subList(1, paramValuesSize);
-
-                    addIdParamValuesToQuery(query, idParam, idParamValues);
-                    addDependencyDataToQuery(query, object, allDataToDelete, objectRelationshipHashMap, idParamValues, true);
+                // Only narrow the query if idParamValues or a predicate were provided in the input
+                if (inputData.isFiltered(object)) {
+                    if (inputData.hasIdParamValues(object)) {
+                        clauses.add(new QueryBuilder.ContainsClause(inputData.getIdParam(object), inputData.getIdParamValues(object)));
+                    }
+                    if (inputData.getPredicate(object) != null) {
+                        predicates.add(inputData.getPredicate(object));
+                    }
+                    addDependencyDataToQuery(clauses, predicates, object, allDataToDelete, objectRelationshipHashMap);
                 }
 
             } else { // If the input has data but this object isn't in it, simply add ids from dependencies to the query
-                addDependencyDataToQuery(query, object, allDataToDelete, objectRelationshipHashMap, null, false);
+                addDependencyDataToQuery(clauses, predicates, object, allDataToDelete, objectRelationshipHashMap);
+
+                // Skip querying this object since it's not in the input and its related objects don't have data to delete
+                if (clauses.isEmpty() && predicates.isEmpty()) {
+                    return Collections.emptyIterator();
+                }
             }
         }
-        return query.toString();
+
+        String predicate = predicates.isEmpty() ? null : String.join(" OR ", predicates);
+        return QueryBuilder.buildSelectionQueries(query, " WHERE ", predicate, clauses);
     }
 
     /**
-     * Appends IdParam values to the query string
+     * An object's selection is full when every one of its records is deleted: there is no input, or the input lists
+     * the object without idParamValues or predicates. The records of its children are then selected by relationship
+     * field instead of by its ids.
      *
-     * @param query         - StringBuilder object representing the query string
-     * @param idParam       - the name of the id parameter
-     * @param idParamValues - List of id parameter values
+     * @param object - name of the object
+     * @return - True if every record of the object is selected for deletion
      */
-    private void addIdParamValuesToQuery(StringBuilder query, String idParam, List<String> idParamValues) {
-        if (!idParam.isEmpty()) {
-            query.append(" WHERE ");
-            appendListToQuery(query, idParam, idParamValues);
-        }
+    private boolean isFullSelection(String object) {
+        return inputData == null || (inputData.containsKey(object) && !inputData.isFiltered(object));
     }
 
     /**
-     * Adds data from dependent records to the query string
+     * Adds data from dependent records to the query clauses. A related object whose records are all deleted adds a
+     * compact "field != null" predicate, which selects the same records as a CONTAINS clause with every one of its ids.
      *
-     * @param query                     - StringBuilder object representing the query string
+     * @param clauses                   - CONTAINS clauses for this object's query
+     * @param predicates                - predicates for this object's query
      * @param object                    - name of the current object
-     * @param allDataToDelete           - HashMap containing the objects and a list of its QueryResults to delete
+     * @param allDataToDelete           - HashMap containing the objects and the ids of their records to delete
      * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
-     * @param idParamValues             - List of id parameter values
-     * @param hasInputData              - True if object has input data, false otherwise
      */
-    private void addDependencyDataToQuery(StringBuilder query, String object, HashMap<String, List<QueryResponse.QueryResult>> allDataToDelete, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap, List<String> idParamValues, boolean hasInputData) {
+    private void addDependencyDataToQuery(List<QueryBuilder.ContainsClause> clauses, List<String> predicates, String object, HashMap<String, RecordIdStore> allDataToDelete, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
 
         if (objectRelationshipHashMap.get(object) != null) {
-            boolean hasRelatedData = false;
-            int relationshipCount = 1;
             for (VaultObject.Relationship relationship : objectRelationshipHashMap.get(object)) {
 
                 String relationshipType = relationship.getRelationshipType();
@@ -382,73 +971,139 @@ public class DeleteVaultData {
                     // If allDataToDelete contains the related object, add the associated records of this type
                     if (allDataToDelete.containsKey(relatedObjectName)) {
 
-                        List<String> idList = new ArrayList<>();
-                        for (QueryResponse.QueryResult result : allDataToDelete.get(relatedObjectName)) {
-                            idList.add(result.get("id").toString());
+                        RecordIdStore idList = allDataToDelete.get(relatedObjectName);
+
+                        if (idList.isEmpty()) {
+                            continue;
+                        }
+                        if (isFullSelection(relatedObjectName)) {
+                            predicates.add(relationship.getField() + " != null");
+                        } else {
+                            clauses.add(new QueryBuilder.ContainsClause(relationship.getField(), idList));
                         }
+                    }
+                }
+            }
+        }
+    }
 
-                        if (!idList.isEmpty()) {
-                            hasRelatedData = true;
+    /**
+     * Executes VQL queries concurrently on the object worker pool and merges their results. Queries are submitted as
+     * they are built, with at most two per thread pending at once. When there is more than one query, ids matched by
+     * several queries are only kept once; the ids already merged are tracked in a CompactStringSet rather than a
+     * HashSet of Strings. If any query fails, the remaining queries are cancelled and no ids are returned, so a
+     * partial selection is never deleted or used to select the records of dependent objects.
+     *
+     * @param queries - VQL queries to execute
+     * @return - RecordIdStore holding the ids of the queried records, or null if a query failed
+     */
+    private RecordIdStore queryHandler(Iterator<String> queries) {
+        String firstQuery = queries.next();
+        if (!queries.hasNext()) {
+            return queryHandler(firstQuery);
+        }
 
-                            // Use where clause if this object either isn't in the input or is in the input without idParamValues
-                            if (relationshipCount == 1 && (!hasInputData || idParamValues.isEmpty())) {
-                                query.append(" WHERE ");
-                            } else {
-                                query.append(" OR ");
-                            }
+        RecordIdStore queryResultList = new RecordIdStore(idStoreHeapBudget);
+        CompactStringSet queriedIds = new CompactStringSet();
+        int maxPendingQueries = threads * 2;
+        Deque<Future<RecordIdStore>> queryResults = new ArrayDeque<>();
+        boolean complete = true;
 
-                            appendListToQuery(query, relationship.getField(), idList);
-                            relationshipCount++;
-                        }
-                    }
+        try {
+            queryResults.add(objectExecutor.submit(() -> queryHandler(firstQuery)));
+            while (complete && queries.hasNext()) {
+                String query = queries.next();
+                queryResults.add(objectExecutor.submit(() -> queryHandler(query)));
+
+                if (queryResults.size() >= maxPendingQueries) {
+                    complete = mergeQueryResults(queryResults.poll(), queryResultList, queriedIds);
                 }
             }
-            // Skip querying this object since it's not in the input and its related objects don't have data to delete
-            if (!hasRelatedData && !hasInputData) {
-                query.delete(0, query.length());
+
+            while (complete && !queryResults.isEmpty()) {
+                complete = mergeQueryResults(queryResults.poll(), queryResultList, queriedIds);
+            }
+        } finally {
+            queriedIds.clear();
+            if (!complete) {
+                discardQueryResults(queryResults);
+                queryResultList.close();
+            }
+        }
+        return complete ? queryResultList : null;
+    }
+
+    /**
+     * Waits for a query to complete and adds any ids not already queried to the merged results
+     *
+     * @param queryResult     - the submitted query
+     * @param queryResultList - merged results
+     * @param queriedIds      - ids already added to the merged results
+     * @return - False if the query failed, otherwise True
+     */
+    private boolean mergeQueryResults(Future<RecordIdStore> queryResult, RecordIdStore queryResultList, CompactStringSet queriedIds) {
+        try (RecordIdStore ids = queryResult.get()) {
+            if (ids == null) {
+                return false;
+            }
+            for (String id : ids) {
+                if (queriedIds.add(id)) {
+                    queryResultList.add(id);
+                }
             }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while querying data to delete");
+        } catch (ExecutionException e) {
+            logger.error("Unexpected error querying data to delete: " + e.getCause().getMessage());
         }
+        return false;
     }
 
     /**
-     * Appends a list of values to the query string as a Contains clause
+     * Cancels the queries still pending after a failure and releases the ids of any that already completed
      *
-     * @param query    - StringBuilder object representing the query string
-     * @param field    - name of the field
-     * @param idValues - values to append
+     * @param queryResults - pending queries
      */
-    private void appendListToQuery(StringBuilder query, String field, List<String> idValues) {
-        query.append(field);
-        query.append(" CONTAINS ('");
-        query.append(String.join("','", idValues));
-        query.append("')");
+    private void discardQueryResults(Deque<Future<RecordIdStore>> queryResults) {
+        for (Future<RecordIdStore> queryResult : queryResults) {
+            queryResult.cancel(true);
+        }
+        for (Future<RecordIdStore> queryResult : queryResults) {
+            try {
+                RecordIdStore ids = queryResult.get();
+                if (ids != null) {
+                    ids.close();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                // Nothing was gathered by this query
+            }
+        }
+        queryResults.clear();
     }
 
     /**
-     * Executes VQL query and paginates through results
+     * Executes VQL query and paginates through results. The next pages are requested while the current page is being
+     * stored, up to the configured prefetch depth.
      *
      * @param query - VQL query to execute
-     * @return - List of QueryResults
+     * @return - RecordIdStore holding the ids of the queried records, or null if the query failed before its last page
      */
-    private List<QueryResponse.QueryResult> queryHandler(String query) {
+    private RecordIdStore queryHandler(String query) {
         // Query to gather the data to delete
-        QueryResponse queryResponse = Client.getVaultClient().newRequest(QueryRequest.class).query(query);
-        List<QueryResponse.QueryResult> queryResultList = new ArrayList<>();
-
-        if (queryResponse != null && !queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE") && queryResponse.getData().size() > 0) {
-
-            queryResultList.addAll(queryResponse.getData());
+        RecordIdStore queryResultList = new RecordIdStore(idStoreHeapBudget);
 
-            if (queryResponse.isPaginated()) {
-
-                while (queryResponse != null && queryResponse.getResponseDetails().hasNextPage()) {
-                    String nextPage = queryResponse.getResponseDetails().getNextPage();
-                    queryResponse = Client.getVaultClient().newRequest(QueryRequest.class).queryByPage(nextPage);
-
-                    if (queryResponse != null && !queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE")) {
-                        queryResultList.addAll(queryResponse.getData());
-                    }
-                }
+        try (QueryPagePipeline pages = new QueryPagePipeline(query, pagePrefetch, pagePrefetch, pageExecutor)) {
+            while (pages.hasNext()) {
+                addIds(queryResultList, pages.next());
+            }
+            if (!pages.isComplete()) {
+                queryResultList.close();
+                return null;
             }
         }
 
@@ -456,46 +1111,296 @@ public class DeleteVaultData {
     }
 
     /**
-     * Handles document deletion. Retrieves all document types and deletes the documents for each.
+     * Adds the ids of the provided query results to the store
+     *
+     * @param idStore      - RecordIdStore to add to
+     * @param queryResults - List of QueryResults
+     */
+    private void addIds(RecordIdStore idStore, List<QueryResponse.QueryResult> queryResults) {
+        for (QueryResponse.QueryResult result : queryResults) {
+            idStore.add(result.get("id").toString());
+        }
+    }
+
+    /**
+     * Handles document deletion. Retrieves all document types and deletes the documents for each. Document types are
+     * deleted concurrently on the document type pool, sharing the batch workers and the output. In document scan mode,
+     * the types without idParamValues or predicates in the input are deleted together by a single scan of documents.
      */
     private void deleteDocumentsHandler() {
 
-        DocumentTypesResponse documentTypesResponse = Client.getVaultClient().newRequest(DocumentRequest.class)
-                .retrieveAllDocumentTypes();
+        List<DocumentTypesResponse.DocumentType> documentTypes = MetadataService.retrieveAllDocumentTypes();
 
-        if (documentTypesResponse.isSuccessful()) {
+        if (documentTypes != null) {
 
-            for (DocumentTypesResponse.DocumentType docType : documentTypesResponse.getTypes()) {
+            List<String> deletedDocumentTypes = new ArrayList<>();
+            List<Future<?>> documentTypeResults = new ArrayList<>();
+            List<DocumentTypesResponse.DocumentType> scannedDocumentTypes = new ArrayList<>();
+            for (DocumentTypesResponse.DocumentType docType : documentTypes) {
 
                 // Only delete specified doc types, if they were provided
                 if (inputData != null && !inputData.containsKey(docType.getName())) {
                     continue;
                 }
 
-                StringBuilder query = new StringBuilder();
-                query.append("SELECT id FROM documents WHERE type__v = '").append(docType.getLabel()).append("'");
+                // Already deleted by the interrupted run being resumed
+                if (journal != null && journal.isTypeDone(docType.getName())) {
+                    continue;
+                }
+                deletedDocumentTypes.add(docType.getName());
+
+                if (oldVersionsOnly) {
+                    documentTypeResults.add(documentTypeExecutor.submit(() -> deleteOldDocumentVersions(docType)));
+                } else if (documentScan && (inputData == null || !inputData.isFiltered(docType.getName()))) {
+                    scannedDocumentTypes.add(docType);
+                } else {
+                    documentTypeResults.add(documentTypeExecutor.submit(() -> deleteDocumentTypeData(docType)));
+                }
+            }
+
+            if (!scannedDocumentTypes.isEmpty()) {
+                boolean allDocumentTypes = scannedDocumentTypes.size() == documentTypes.size();
+                documentTypeResults.add(documentTypeExecutor.submit(() -> deleteScannedDocumentData(scannedDocumentTypes, allDocumentTypes)));
+            }
 
-                // If the input contains this document type and has idParams, add those idParamValues to query
-                if (inputData != null && inputData.containsKey(docType.getName())) {
-                    // Only add idParamValues to the query if provided in the input
-                    if (inputData.get(docType.getName()).size() > 1) {
-                        String idParam = inputData.get(docType.getName()).get(0);
-                        int paramValuesSize = inputData.get(docType.getName()).size();
-                        List<String> idParamValues = inputData.get(docType.getName()).subList(1, paramValuesSize);
-                        if (!idParam.isEmpty() && idParamValues.size() > 0) {
-                            query.append(" AND ");
-                            appendListToQuery(query, idParam, idParamValues);
+            if (!awaitAll(documentTypeResults)) {
+                return;
+            }
+
+            if (replayFailedRecords() && journal != null) {
+                for (String docType : deletedDocumentTypes) {
+                    journal.writeTypeDone(docType);
+                }
+            }
+            summary.log(oldVersionsOnly ? "DOCUMENT_VERSIONS" : "DOCUMENTS");
+        }
+    }
+
+    /**
+     * Deletes (or in read-only mode, writes to CSV) the documents of a single document type
+     *
+     * @param docType - document type
+     */
+    private void deleteDocumentTypeData(DocumentTypesResponse.DocumentType docType) {
+        long startTime = System.nanoTime();
+        String query = "SELECT id FROM documents WHERE type__v = '" + docType.getLabel() + "'";
+
+        // If the input contains this document type with idParamValues or a predicate, narrow the query to them. Large
+        // value lists are split across several bounded-size queries.
+        Iterator<String> queries = buildDocumentTypeQueries(query, docType.getName());
+        while (queries.hasNext()) {
+            deleteDataHandler("documents", docType.getName(), queries.next());
+        }
+        DeleteSummary.Stats stats = summary.get("DOCUMENTS", docType.getName());
+        stats.addElapsed(System.nanoTime() - startTime);
+        Metrics.recordPhase("delete", docType.getName(), System.nanoTime() - startTime, stats.getRecords());
+    }
+
+    /**
+     * Deletes (or in read-only mode, writes to CSV) the non-latest versions of the documents of a single document type.
+     * Versions are listed from ALLVERSIONS ordered by document id and then by version, newest first, so the first row
+     * of each document is its latest version and is skipped. Every old version is listed before any is deleted, so
+     * deletes cannot shift the pages still to be read.
+     * <p>
+     * When the input filters the document type, its idParamValues and predicate are only used to select the ids of
+     * the documents to purge. Every version of those documents is then listed by id, so a predicate that matches
+     * only some versions of a document cannot make an old version look like the latest one.
+     *
+     * @param docType - document type
+     */
+    private void deleteOldDocumentVersions(DocumentTypesResponse.DocumentType docType) {
+        long startTime = System.nanoTime();
+        String query = "SELECT id, major_version_number__v, minor_version_number__v FROM ALLVERSIONS documents WHERE type__v = '" + docType.getLabel() + "'";
+        String orderBy = " ORDER BY id ASC, major_version_number__v DESC, minor_version_number__v DESC";
+
+        // Version ids, in the form {id}_{major}_{minor}
+        RecordIdStore oldVersions = new RecordIdStore(idStoreHeapBudget);
+        RecordIdStore selectedDocuments = null;
+        try {
+            Iterator<String> queries;
+            if (inputData == null || !inputData.isFiltered(docType.getName())) {
+                queries = Collections.singletonList(query).iterator();
+            } else {
+                selectedDocuments = queryHandler(buildDocumentTypeQueries(
+                        "SELECT id FROM documents WHERE type__v = '" + docType.getLabel() + "'", docType.getName()));
+                if (selectedDocuments == null) {
+                    logger.error("Unable to select the " + docType.getName() + " documents to purge; No versions of this document type were deleted");
+                    return;
+                }
+                if (selectedDocuments.isEmpty()) {
+                    logger.info("Found 0 old versions of " + docType.getName() + " documents");
+                    return;
+                }
+                queries = QueryBuilder.buildContainsQueries(query + " AND ",
+                        Collections.singletonList(new QueryBuilder.ContainsClause("id", selectedDocuments)));
+            }
+
+            while (queries.hasNext()) {
+                try (QueryPagePipeline pages = new QueryPagePipeline(queries.next() + orderBy, Math.max(2, pagePrefetch), pagePrefetch, pageExecutor)) {
+                    String previousId = null;
+                    while (pages.hasNext()) {
+                        for (QueryResponse.QueryResult result : pages.next()) {
+                            String id = result.get("id").toString();
+                            if (!id.equals(previousId)) {
+                                // Latest version of the document
+                                previousId = id;
+                                continue;
+                            }
+                            oldVersions.add(id + "_" + versionNumber(result.get("major_version_number__v"))
+                                    + "_" + versionNumber(result.get("minor_version_number__v")));
                         }
                     }
+                    if (!pages.isComplete()) {
+                        logger.error("Unable to list every version of " + docType.getName() + " documents; No versions of this document type were deleted");
+                        return;
+                    }
                 }
-                deleteDataHandler("documents", docType.getName(), query.toString());
             }
+
+            logger.info("Found " + oldVersions.size() + " old versions of " + docType.getName() + " documents");
+            if (isReadOnly != null && isReadOnly) {
+                writeReadOnlyResultsToCSV(DOCUMENT_VERSIONS, docType.getName(), oldVersions);
+            } else if (journal != null) {
+                deleteData(DOCUMENT_VERSIONS, docType.getName(), skipDone(oldVersions, journal.getDone(DOCUMENT_VERSIONS, docType.getName())), null);
+            } else {
+                deleteData(DOCUMENT_VERSIONS, docType.getName(), oldVersions, null);
+            }
+        } finally {
+            oldVersions.close();
+            if (selectedDocuments != null) {
+                selectedDocuments.close();
+            }
+            DeleteSummary.Stats stats = summary.get("DOCUMENT_VERSIONS", docType.getName());
+            stats.addElapsed(System.nanoTime() - startTime);
+            Metrics.recordPhase("delete", docType.getName(), System.nanoTime() - startTime, stats.getRecords());
         }
     }
 
     /**
-     * Deletes data for the specified target and type based on the provided query. Executes the VQL query, paginates
-     * through results, and deletes data while paginating.
+     * Builds the queries selecting the documents of a document type from the input's idParamValues and predicate
+     *
+     * @param query       - query selecting every document of the type, ending with its type__v condition
+     * @param docTypeName - document type name
+     * @return - Iterator of VQL queries; the union of their results is the selected documents
+     */
+    private Iterator<String> buildDocumentTypeQueries(String query, String docTypeName) {
+        if (inputData == null || !inputData.isFiltered(docTypeName)) {
+            return Collections.singletonList(query).iterator();
+        }
+
+        List<QueryBuilder.ContainsClause> clauses = new ArrayList<>();
+        if (inputData.hasIdParamValues(docTypeName)) {
+            clauses.add(new QueryBuilder.ContainsClause(inputData.getIdParam(docTypeName), inputData.getIdParamValues(docTypeName)));
+        }
+        return QueryBuilder.buildSelectionQueries(query, " AND ", inputData.getPredicate(docTypeName), clauses);
+    }
+
+    /**
+     * @return - version number from a query result, without any decimal part added by JSON parsing
+     */
+    private static String versionNumber(Object value) {
+        if (value instanceof Number) {
+            return String.valueOf(((Number) value).longValue());
+        }
+        return String.valueOf(new BigDecimal(String.valueOf(value)).longValue());
+    }
+
+    /**
+     * Deletes (or in read-only mode, writes to CSV) the documents of several document types with a single paginated
+     * scan of documents. Each document is routed to a batch of its type by its type__v, so the number of queries depends
+     * on the number of documents rather than the number of document types.
+     *
+     * @param docTypes         - document types to delete
+     * @param allDocumentTypes - True if docTypes holds every document type, so the scan needs no filter
+     */
+    private void deleteScannedDocumentData(List<DocumentTypesResponse.DocumentType> docTypes, boolean allDocumentTypes) {
+        long startTime = System.nanoTime();
+        boolean readOnly = isReadOnly != null && isReadOnly;
+
+        // type__v is returned as the document type label
+        Map<String, String> docTypeNames = new HashMap<>();
+        Map<String, CompactStringSet> doneIds = new HashMap<>();
+        for (DocumentTypesResponse.DocumentType docType : docTypes) {
+            docTypeNames.put(docType.getLabel(), docType.getName());
+            if (journal != null) {
+                doneIds.put(docType.getName(), journal.getDone("documents", docType.getName()));
+            }
+        }
+
+        String query = "SELECT id, type__v FROM documents";
+        Iterator<String> queries = allDocumentTypes
+                ? Collections.singletonList(query).iterator()
+                : QueryBuilder.buildContainsQueries(query + " WHERE ",
+                Collections.singletonList(new QueryBuilder.ContainsClause("type__v", docTypeNames.keySet())));
+
+        // Each type is timed from its first scanned document to the end of its last batch
+        Map<String, Long> typeStartTimes = new HashMap<>();
+        Map<String, Long> typeEndTimes = new ConcurrentHashMap<>();
+        Map<String, List<String>> batches = new HashMap<>();
+        Deque<Future<?>> batchResults = new ArrayDeque<>();
+        try {
+            while (queries.hasNext()) {
+                try (QueryPagePipeline pages = new QueryPagePipeline(queries.next(), Math.max(2, pagePrefetch), pagePrefetch, pageExecutor)) {
+                    while (pages.hasNext()) {
+                        for (QueryResponse.QueryResult result : pages.next()) {
+                            String docTypeName = docTypeNames.get(String.valueOf(result.get("type__v")));
+                            if (docTypeName == null) {
+                                continue;
+                            }
+                            String id = result.get("id").toString();
+                            typeStartTimes.putIfAbsent(docTypeName, System.nanoTime());
+
+                            if (readOnly) {
+                                summary.get("DOCUMENTS", docTypeName).addRecord(false);
+                                resultWriter.write(new String[]{"DOCUMENTS", docTypeName, id});
+                                continue;
+                            }
+
+                            // Skip records whose results were already written by the interrupted run being resumed
+                            CompactStringSet done = doneIds.get(docTypeName);
+                            if (done != null && done.contains(id)) {
+                                continue;
+                            }
+
+                            List<String> batch = batches.computeIfAbsent(docTypeName, key -> new ArrayList<>(BATCH_SIZE));
+                            batch.add(id);
+                            if (batch.size() >= BATCH_SIZE) {
+                                batches.remove(docTypeName);
+                                if (!submitBatch(batchResults, "documents", docTypeName, batch, null, typeEndTimes)) {
+                                    return;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (Map.Entry<String, List<String>> batch : batches.entrySet()) {
+                if (!submitBatch(batchResults, "documents", batch.getKey(), batch.getValue(), null, typeEndTimes)) {
+                    return;
+                }
+            }
+            while (!batchResults.isEmpty()) {
+                if (!awaitBatch("documents", batchResults.poll())) {
+                    return;
+                }
+            }
+        } finally {
+            long endTime = System.nanoTime();
+            for (Map.Entry<String, Long> typeStartTime : typeStartTimes.entrySet()) {
+                long typeEndTime = typeEndTimes.getOrDefault(typeStartTime.getKey(), endTime);
+                summary.get("DOCUMENTS", typeStartTime.getKey()).addElapsed(typeEndTime - typeStartTime.getValue());
+            }
+        }
+        logger.info(String.format("Scanned %d document types in %.1fs", docTypes.size(), (System.nanoTime() - startTime) / 1e9));
+        Metrics.recordPhase("document_scan", "documents", System.nanoTime() - startTime, docTypes.size());
+    }
+
+    /**
+     * Deletes data for the specified target and type based on the provided query. Pages through the query results on
+     * a producer thread while the pages already fetched are deleted, so query and delete round trips overlap. At most
+     * two fetched pages (or the prefetch depth, if higher) wait in the queue, holding back the producer until the
+     * deletes catch up.
      *
      * @param target - the target of data deletion (e.g. "documents" or the object name)
      * @param type   - document type if target is documents, null otherwise
@@ -503,151 +1408,431 @@ public class DeleteVaultData {
      */
     private void deleteDataHandler(String target, String type, String query) {
         // Query the provided target and delete its data
-        QueryResponse queryResponse = Client.getVaultClient().newRequest(QueryRequest.class).query(query);
-
-        if (queryResponse != null && !queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE") && queryResponse.getData().size() > 0) {
+        try (QueryPagePipeline pages = new QueryPagePipeline(query, Math.max(2, pagePrefetch), pagePrefetch, pageExecutor)) {
 
             if (isReadOnly != null && isReadOnly) {
-                writeReadOnlyResultsToCSV(target, type, queryResponse.getData());
+                writeReadOnlyResultsToCSV(target, type, pages.ids());
+            } else if (journal != null) {
+                // Skip records whose results were already written by the interrupted run being resumed
+                deleteData(target, type, skipDone(pages.ids(), journal.getDone(target, type)), null);
             } else {
-                // Delete the first page
-                deleteData(target, type, queryResponse.getData());
+                deleteData(target, type, pages.ids(), null);
             }
+        }
+    }
 
-            if (queryResponse.isPaginated()) {
+    /**
+     * @return - the ids, skipping any in the done set
+     */
+    private static Iterable<String> skipDone(Iterable<String> ids, CompactStringSet done) {
+        if (done.isEmpty()) {
+            return ids;
+        }
+        return () -> new Iterator<String>() {
+            private final Iterator<String> iterator = ids.iterator();
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    String id = iterator.next();
+                    if (!done.contains(id)) {
+                        next = id;
+                    }
+                }
+                return next != null;
+            }
 
-                while (queryResponse != null && queryResponse.getResponseDetails().hasNextPage()) {
-                    String nextPage = queryResponse.getResponseDetails().getNextPage();
-                    queryResponse = Client.getVaultClient().newRequest(QueryRequest.class).queryByPage(nextPage);
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String id = next;
+                next = null;
+                return id;
+            }
+        };
+    }
 
-                    if (queryResponse != null && !queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE")) {
+    /**
+     * Deletes the records queued by earlier failures, in rounds with a growing backoff between them, until every record
+     * has either been deleted or run out of retries
+     *
+     * @return - False if interrupted while waiting, otherwise True
+     */
+    private boolean replayFailedRecords() {
+        for (int retry = 1; !failedRecords.isEmpty(); retry++) {
+            if (!retryPolicy.backoff(retry)) {
+                logger.error("Interrupted while retrying failed records");
+                return false;
+            }
 
-                        if (isReadOnly != null && isReadOnly) {
-                            writeReadOnlyResultsToCSV(target, type, queryResponse.getData());
-                        } else {
-                            deleteData(target, type, queryResponse.getData());
-                        }
-                    }
-                }
+            for (FailedRecordQueue.Group group : failedRecords.drain()) {
+                String name = isDocumentTarget(group.getTarget()) ? group.getType() : group.getTarget();
+                logger.info("Retrying " + group.getAttempts().size() + " failed " + name + " records");
+                deleteData(group.getTarget(), group.getType(), group.getAttempts().keySet(), group.getAttempts());
             }
         }
+        return true;
     }
 
     /**
-     * Deletes the provided data for the specified target and type.
+     * Deletes the provided data for the specified target and type. Ids are sliced into batches of 500 as they are
+     * iterated, and each batch is submitted to the worker pool. At most two batches per thread are queued or in flight,
+     * so large (spilled) id stores are never fully materialized. Workers hand their results to the result writer as
+     * each batch completes.
      *
-     * @param target       - the target of data deletion (e.g. "documents" or the object name)
-     * @param type         - document type if target is documents, null otherwise
-     * @param dataToDelete - List of QueryResults to delete
+     * @param target        - the target of data deletion (e.g. "documents" or the object name)
+     * @param type          - document type if target is documents, "" otherwise
+     * @param dataToDelete  - ids of the records to delete
+     * @param priorAttempts - delete attempts already made for each id when replaying failed records, null otherwise
      */
-    private void deleteData(String target, String type, List<QueryResponse.QueryResult> dataToDelete) {
+    private void deleteData(String target, String type, Iterable<String> dataToDelete, Map<String, Integer> priorAttempts) {
+        Deque<Future<?>> batchResults = new ArrayDeque<>();
 
-        // Partition the VQL response into batches of 500
-        int batchSize = 500;
-        List<List<QueryResponse.QueryResult>> partitions = new ArrayList<>();
+        Iterator<String> ids = dataToDelete.iterator();
+        while (ids.hasNext()) {
+            List<String> batch = nextBatch(ids);
+            if (!submitBatch(batchResults, target, type, batch, priorAttempts)) {
+                return;
+            }
+        }
 
-        for (int cnt = 0; cnt < dataToDelete.size(); cnt += batchSize) {
-            partitions.add(dataToDelete.subList(cnt, Math.min(cnt + batchSize, dataToDelete.size())));
+        while (!batchResults.isEmpty()) {
+            if (!awaitBatch(target, batchResults.poll())) {
+                return;
+            }
         }
+    }
 
-        int startIndex = 0;
-        // Build a JSONArray and execute bulk delete
-        for (List<QueryResponse.QueryResult> batch : partitions) {
-            List<String[]> outputData = new ArrayList<>();
+    /**
+     * Submits a batch to the worker pool. Once two batches per thread are pending, waits for the oldest to complete.
+     *
+     * @param batchResults  - pending batches of the caller
+     * @param target        - the target of data deletion (e.g. "documents" or the object name)
+     * @param type          - document type if target is documents, "" otherwise
+     * @param batch         - ids of the records in this batch
+     * @param priorAttempts - delete attempts already made for each id when replaying failed records, null otherwise
+     * @return - False if interrupted while waiting, otherwise True
+     */
+    private boolean submitBatch(Deque<Future<?>> batchResults, String target, String type, List<String> batch, Map<String, Integer> priorAttempts) {
+        return submitBatch(batchResults, target, type, batch, priorAttempts, null);
+    }
 
-            JSONArray jsonArray = new JSONArray();
-            for (QueryResponse.QueryResult row : batch) {
-                jsonArray.put(row.toJSONObject());
+    /**
+     * Submits a batch to the worker pool, recording when it completes. Once two batches per thread are pending, waits
+     * for the oldest to complete.
+     *
+     * @param batchResults  - pending batches of the caller
+     * @param target        - the target of data deletion (e.g. "documents" or the object name)
+     * @param type          - document type if target is documents, "" otherwise
+     * @param batch         - ids of the records in this batch
+     * @param priorAttempts - delete attempts already made for each id when replaying failed records, null otherwise
+     * @param endTimes      - latest batch completion time of each type, or null if not needed
+     * @return - False if interrupted while waiting, otherwise True
+     */
+    private boolean submitBatch(Deque<Future<?>> batchResults, String target, String type, List<String> batch, Map<String, Integer> priorAttempts, Map<String, Long> endTimes) {
+        batchResults.add(batchExecutor.submit(() -> {
+            long startTime = System.nanoTime();
+            deleteBatch(target, type, batch, priorAttempts);
+            long endTime = System.nanoTime();
+            Metrics.recordPhase("delete_batch", isDocumentTarget(target) ? type : target, endTime - startTime, batch.size());
+            if (endTimes != null) {
+                endTimes.merge(type, endTime, Math::max);
             }
+        }));
+        return batchResults.size() < threads * 2 || awaitBatch(target, batchResults.poll());
+    }
 
-            if (target.equalsIgnoreCase("DOCUMENTS")) {
-                DocumentBulkResponse resp = Client.getVaultClient().newRequest(DocumentRequest.class)
-                        .setContentTypeJson()
-                        .setRequestString(jsonArray.toString())
-                        .deleteMultipleDocuments();
+    /**
+     * Waits for a batch to complete
+     *
+     * @param target      - the target of data deletion (e.g. "documents" or the object name)
+     * @param batchResult - the submitted batch
+     * @return - False if interrupted while waiting, otherwise True
+     */
+    private boolean awaitBatch(String target, Future<?> batchResult) {
+        try {
+            batchResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while deleting " + target + " data");
+            return false;
+        } catch (ExecutionException e) {
+            logger.error("Unexpected error deleting " + target + " data: " + e.getCause().getMessage());
+        }
+        return true;
+    }
 
-                if (resp != null) {
-                    handleDeleteResponse(resp, type, dataToDelete, startIndex, outputData);
+    /**
+     * Builds a JSONArray for a single batch and executes the bulk delete. The whole batch is sent again, with backoff,
+     * when there is no response or the response only has transient top-level errors. If the batch still fails, every
+     * record in it is written as a failure.
+     * <p>
+     * Results are handed to the result writer, and the batch is recorded in the journal once they are on disk.
+     *
+     * @param target        - the target of data deletion (e.g. "documents" or the object name)
+     * @param type          - document type if target is documents, "" otherwise
+     * @param batch         - ids of the records in this batch
+     * @param priorAttempts - delete attempts already made for each id when replaying failed records, null otherwise
+     */
+    private void deleteBatch(String target, String type, List<String> batch, Map<String, Integer> priorAttempts) {
+        boolean isVersions = target.equalsIgnoreCase(DOCUMENT_VERSIONS);
+        boolean isDocuments = isDocumentTarget(target);
+
+        // Serialized once and reused by every attempt
+        String requestString = buildRequestJson(batch, isVersions);
+
+        String dataTypeLabel = dataTypeLabel(target);
+        DeleteSummary.Stats stats = summary.get(dataTypeLabel, isDocuments ? type : target);
+        stats.addBatch();
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            VaultResponse resp;
+            try {
+                if (isVersions) {
+                    resp = Client.execute(() -> Client.getVaultClient().newRequest(DocumentRequest.class)
+                            .setContentTypeJson()
+                            .setRequestString(requestString)
+                            .deleteMultipleDocumentVersions());
+                } else if (isDocuments) {
+                    resp = Client.execute(() -> Client.getVaultClient().newRequest(DocumentRequest.class)
+                            .setContentTypeJson()
+                            .setRequestString(requestString)
+                            .deleteMultipleDocuments());
+                } else {
+                    resp = Client.execute(() -> Client.getVaultClient().newRequest(ObjectRecordRequest.class)
+                            .setContentTypeJson()
+                            .setRequestString(requestString)
+                            .deleteObjectRecords(target));
                 }
-            } else {
-                ObjectRecordBulkResponse resp = Client.getVaultClient().newRequest(ObjectRecordRequest.class)
-                        .setContentTypeJson()
-                        .setRequestString(jsonArray.toString())
-                        .deleteObjectRecords(target);
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error deleting " + target + " data: " + e.getMessage());
+                resp = null;
+            }
+
+            if (resp != null && resp.getErrors() == null) {
+                Set<String> requeued;
+                if (isDocuments) {
+                    requeued = handleDeleteResponse((DocumentBulkResponse) resp, target, type, batch, priorAttempts, attempt);
+                } else {
+                    requeued = handleDeleteResponse((ObjectRecordBulkResponse) resp, target, batch, priorAttempts, attempt);
+                }
+                commitBatch(target, type, batch, requeued);
+                return;
+            }
+
+            if (resp != null) {
+                handleErrors(resp, false);
+            }
 
-                if (resp != null) {
-                    handleDeleteResponse(resp, target, dataToDelete, startIndex, outputData);
+            if (retryPolicy.canRetry(attempt) && retryPolicy.isTransient(resp)) {
+                logger.warn("Retrying batch of " + batch.size() + " " + (isDocuments ? type : target)
+                        + " records (retry " + attempt + " of " + retryPolicy.getMaxRetries() + ")");
+                if (retryPolicy.backoff(attempt)) {
+                    continue;
                 }
             }
-            startIndex += 500;
 
-            // Print the results to CSV as we go
-            FileUtil.writeDataToCsv(outputData, csvWriter);
+            // Record the failure for every record in the batch
+            String errorMessage = resp == null ? "No response from Vault" : handleErrors(resp, true);
+            for (String id : batch) {
+                stats.addRecord(true);
+                resultWriter.write(new String[]{
+                        String.valueOf(action),
+                        dataTypeLabel,
+                        isDocuments ? type : target,
+                        id,
+                        "FAILURE",
+                        errorMessage,
+                        String.valueOf(attempts(priorAttempts, id, attempt))
+                });
+            }
+            commitBatch(target, type, batch, null);
+            return;
         }
     }
 
     /**
-     * Handles the response for document deletion and writes it to the output CSV
+     * Takes the next batch of up to BATCH_SIZE ids
      *
-     * @param resp         - DocumentBulkResponse object representing the deletion response
-     * @param docType      - document type
-     * @param dataToDelete - List of QueryResults being deleted
-     * @param startIndex   - starting index for data being deleted, used to map response to particular record id
-     * @param outputData   - output array to be written to the output CSV
+     * @param ids - ids still to delete
+     * @return - the next batch of ids
      */
-    private void handleDeleteResponse(DocumentBulkResponse resp, String docType, List<QueryResponse.QueryResult> dataToDelete, int startIndex, List<String[]> outputData) {
-
-        handleErrors(resp, false);
+    static List<String> nextBatch(Iterator<String> ids) {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        while (ids.hasNext() && batch.size() < BATCH_SIZE) {
+            batch.add(ids.next());
+        }
+        return batch;
+    }
 
-        if (resp.getErrors() == null) {
-            int index = startIndex;
-            for (DocumentResponse documentResponse : resp.getData()) {
+    /**
+     * Builds the JSON request body of a bulk delete
+     *
+     * @param batch      - ids to delete; version ids are in the form {id}_{major}_{minor}
+     * @param isVersions - True if the batch holds document version ids
+     * @return - JSON array of the records or versions to delete
+     */
+    static String buildRequestJson(List<String> batch, boolean isVersions) {
+        JSONArray jsonArray = new JSONArray();
+        for (String id : batch) {
+            if (isVersions) {
+                String[] version = id.split("_");
+                jsonArray.put(new JSONObject()
+                        .put("id", version[0])
+                        .put("major_version_number__v", version[1])
+                        .put("minor_version_number__v", version[2]));
+            } else {
+                jsonArray.put(new JSONObject().put("id", id));
+            }
+        }
+        return jsonArray.toString();
+    }
 
-                String[] currentOutput = new String[6];
-                currentOutput[0] = String.valueOf(action); // Action (From CLI Input)
-                currentOutput[1] = "DOCUMENTS";
-                currentOutput[2] = docType; // Document type
-                currentOutput[3] = String.valueOf(dataToDelete.get(index).toJSONObject().get("id")); // Id
-                currentOutput[4] = String.valueOf(documentResponse.getResponseStatus()); // Response status
+    /**
+     * @return - True if the target is documents or document versions, whose batches are grouped by document type
+     */
+    private static boolean isDocumentTarget(String target) {
+        return target.equalsIgnoreCase("DOCUMENTS") || target.equalsIgnoreCase(DOCUMENT_VERSIONS);
+    }
 
-                currentOutput[5] = handleErrors(documentResponse, true); // Error Message
+    /**
+     * @return - data type written to the output for the target: DOCUMENTS, DOCUMENT_VERSIONS or OBJECTS
+     */
+    private static String dataTypeLabel(String target) {
+        if (target.equalsIgnoreCase(DOCUMENT_VERSIONS)) {
+            return "DOCUMENT_VERSIONS";
+        }
+        return target.equalsIgnoreCase("DOCUMENTS") ? "DOCUMENTS" : "OBJECTS";
+    }
 
-                outputData.add(currentOutput);
-                index++;
+    /**
+     * Records the batch in the journal once its results are on disk. Requeued records are left out, since their
+     * results are written when they are replayed.
+     *
+     * @param target   - the target of data deletion (e.g. "documents" or the object name)
+     * @param type     - document type if target is documents, "" otherwise
+     * @param batch    - ids of the records in the batch
+     * @param requeued - ids of the requeued records, or null if none were requeued
+     */
+    private void commitBatch(String target, String type, List<String> batch, Set<String> requeued) {
+        if (journal == null) {
+            return;
+        }
+        List<String> done = batch;
+        if (requeued != null) {
+            done = new ArrayList<>(batch.size());
+            for (String id : batch) {
+                if (!requeued.contains(id)) {
+                    done.add(id);
+                }
             }
         }
+        List<String> doneIds = done;
+        resultWriter.commit(() -> journal.writeDone(target, type, doneIds));
     }
 
     /**
-     * Handles the response for object deletion and writes it to the output CSV
-     *
-     * @param resp         - ObjectRecordBulkResponse object representing the deletion response
-     * @param objectName   - object name
-     * @param dataToDelete - List of QueryResults being deleted
-     * @param startIndex   - starting index for data being deleted, used to map response to particular record id
-     * @param outputData   - output array to be written to the output CSV
+     * @return - total delete attempts made for the record, including those made before it was requeued
      */
-    private void handleDeleteResponse(ObjectRecordBulkResponse resp, String objectName, List<QueryResponse.QueryResult> dataToDelete, int startIndex, List<String[]> outputData) {
+    private static int attempts(Map<String, Integer> priorAttempts, String id, int attempt) {
+        if (priorAttempts == null || !priorAttempts.containsKey(id)) {
+            return attempt;
+        }
+        return priorAttempts.get(id) + attempt;
+    }
 
-        handleErrors(resp, false);
+    /**
+     * Handles the response for document or document version deletion and hands it to the result writer. Records that
+     * failed with a retryable error are requeued instead, while they have retries left.
+     *
+     * @param resp          - DocumentBulkResponse object representing the deletion response
+     * @param target        - "documents" or "document_versions"
+     * @param docType       - document type
+     * @param batch         - ids of the records in the batch, in the order they were sent
+     * @param priorAttempts - delete attempts already made for each id when replaying failed records, null otherwise
+     * @param attempt       - attempts made for this batch, including this one
+     * @return - ids of the requeued records, or null if none were requeued
+     */
+    private Set<String> handleDeleteResponse(DocumentBulkResponse resp, String target, String docType, List<String> batch, Map<String, Integer> priorAttempts, int attempt) {
+        String dataTypeLabel = dataTypeLabel(target);
+        DeleteSummary.Stats stats = summary.get(dataTypeLabel, docType);
+        Set<String> requeued = null;
+        int index = 0;
+        for (DocumentResponse documentResponse : resp.getData()) {
+            String id = batch.get(index++);
+            int attempts = attempts(priorAttempts, id, attempt);
+
+            if (retryPolicy.canRetry(attempts) && retryPolicy.isRequeueable(documentResponse)) {
+                failedRecords.add(target, docType, id, attempts);
+                if (requeued == null) {
+                    requeued = new HashSet<>();
+                }
+                requeued.add(id);
+                continue;
+            }
 
-        if (resp.getErrors() == null) {
-            int index = startIndex;
-            for (ObjectRecordResponse objectRecordResponse : resp.getData()) {
+            String[] currentOutput = new String[7];
+            currentOutput[0] = String.valueOf(action); // Action (From CLI Input)
+            currentOutput[1] = dataTypeLabel;
+            currentOutput[2] = docType; // Document type
+            currentOutput[3] = id; // Id
+            currentOutput[4] = String.valueOf(documentResponse.getResponseStatus()); // Response status
 
-                String[] currentOutput = new String[6];
-                currentOutput[0] = String.valueOf(action); // Action (From CLI Input)
-                currentOutput[1] = "OBJECTS";
-                currentOutput[2] = objectName; // Record type
-                currentOutput[3] = dataToDelete.get(index).toJSONObject().getString("id"); // Id
-                currentOutput[4] = String.valueOf(objectRecordResponse.getResponseStatus()); // Response status
+            currentOutput[5] = handleErrors(documentResponse, true); // Error Message
+            currentOutput[6] = String.valueOf(attempts); // Attempts
 
-                currentOutput[5] = handleErrors(objectRecordResponse, true);
+            stats.addRecord(!"SUCCESS".equalsIgnoreCase(currentOutput[4]));
+            resultWriter.write(currentOutput);
+        }
+        return requeued;
+    }
 
-                outputData.add(currentOutput);
-                index++;
+    /**
+     * Handles the response for object deletion and hands it to the result writer. Records that failed with a
+     * retryable error are requeued instead, while they have retries left.
+     *
+     * @param resp          - ObjectRecordBulkResponse object representing the deletion response
+     * @param objectName    - object name
+     * @param batch         - ids of the records in the batch, in the order they were sent
+     * @param priorAttempts - delete attempts already made for each id when replaying failed records, null otherwise
+     * @param attempt       - attempts made for this batch, including this one
+     * @return - ids of the requeued records, or null if none were requeued
+     */
+    private Set<String> handleDeleteResponse(ObjectRecordBulkResponse resp, String objectName, List<String> batch, Map<String, Integer> priorAttempts, int attempt) {
+        DeleteSummary.Stats stats = summary.get("OBJECTS", objectName);
+        Set<String> requeued = null;
+        int index = 0;
+        for (ObjectRecordResponse objectRecordResponse : resp.getData()) {
+            String id = batch.get(index++);
+            int attempts = attempts(priorAttempts, id, attempt);
+
+            if (retryPolicy.canRetry(attempts) && retryPolicy.isRequeueable(objectRecordResponse)) {
+                failedRecords.add(objectName, "", id, attempts);
+                if (requeued == null) {
+                    requeued = new HashSet<>();
+                }
+                requeued.add(id);
+                continue;
             }
+
+            String[] currentOutput = new String[7];
+            currentOutput[0] = String.valueOf(action); // Action (From CLI Input)
+            currentOutput[1] = "OBJECTS";
+            currentOutput[2] = objectName; // Record type
+            currentOutput[3] = id; // Id
+            currentOutput[4] = String.valueOf(objectRecordResponse.getResponseStatus()); // Response status
+
+            currentOutput[5] = handleErrors(objectRecordResponse, true);
+            currentOutput[6] = String.valueOf(attempts); // Attempts
+
+            stats.addRecord(!"SUCCESS".equalsIgnoreCase(currentOutput[4]));
+            resultWriter.write(currentOutput);
         }
+        return requeued;
     }
 
     /**
@@ -690,16 +1875,29 @@ public class DeleteVaultData {
      *
      * @param dataType - OBJECTS or DOCUMENTS
      * @param name - the object name or document type to be deleted
-     * @param dataToDelete - List of QueryResults to be deleted
+     * @param dataToDelete - ids of the records to be deleted
      */
-    private void writeReadOnlyResultsToCSV(String dataType, String name, List<QueryResponse.QueryResult> dataToDelete) {
-        List<String[]> outputData = new ArrayList<>();
-
-        for (QueryResponse.QueryResult row : dataToDelete) {
-            String[] currentOutput = { dataType.toUpperCase(), name, row.get("id").toString()};
-            outputData.add(currentOutput);
+    private void writeReadOnlyResultsToCSV(String dataType, String name, Iterable<String> dataToDelete) {
+        String upperCaseDataType = dataType.toUpperCase();
+        DeleteSummary.Stats stats = summary.get(upperCaseDataType, name);
+        for (String id : dataToDelete) {
+            stats.addRecord(false);
+            resultWriter.write(new String[]{upperCaseDataType, name, id});
         }
+    }
 
-        FileUtil.writeDataToCsv(outputData, csvWriter);
+    /**
+     * Waits for submitted work to finish and shuts down the provided executor.
+     *
+     * @param executor - ExecutorService to shut down
+     */
+    private void shutdownExecutor(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records whose delete failed with a retryable error, held until they are replayed. Safe to add to from multiple
+ * delete workers.
+ */
+public class FailedRecordQueue {
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+
+    /**
+     * Queues a record for replay
+     *
+     * @param target   - the target of data deletion (e.g. "documents" or the object name)
+     * @param type     - document type if target is documents, "" otherwise
+     * @param id       - record id
+     * @param attempts - number of delete attempts made for the record so far
+     */
+    public synchronized void add(String target, String type, String id, int attempts) {
+        groups.computeIfAbsent(target + "\u0000" + type, key -> new Group(target, type)).attempts.put(id, attempts);
+    }
+
+    public synchronized boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * Removes and returns every queued record, grouped by target and type
+     *
+     * @return - queued groups, in the order they were first added
+     */
+    public synchronized List<Group> drain() {
+        List<Group> drained = new ArrayList<>(groups.values());
+        groups.clear();
+        return drained;
+    }
+
+    /**
+     * Queued records of a single target and type
+     */
+    public static class Group {
+        private final String target;
+        private final String type;
+        private final Map<String, Integer> attempts = new LinkedHashMap<>();
+
+        Group(String target, String type) {
+            this.target = target;
+            this.type = type;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return - ids of the queued records, mapped to the number of delete attempts made for each
+         */
+        public Map<String, Integer> getAttempts() {
+            return attempts;
+        }
+    }
+}
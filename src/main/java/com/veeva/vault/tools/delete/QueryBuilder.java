@@ -0,0 +1,148 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Builds VQL queries with CONTAINS clauses. Large value lists are split across several bounded-size queries instead of
+ * being joined into one giant VQL string.
+ */
+public class QueryBuilder {
+    /**
+     * Maximum number of characters in the value list of a single CONTAINS clause
+     */
+    public static final int MAX_CONTAINS_LENGTH = 50000;
+
+    private QueryBuilder() {
+    }
+
+    /**
+     * Appends a list of values to the query string as a Contains clause
+     *
+     * @param query    - StringBuilder object representing the query string
+     * @param field    - name of the field
+     * @param idValues - values to append
+     */
+    public static void appendListToQuery(StringBuilder query, String field, Iterable<String> idValues) {
+        query.append(field);
+        query.append(" CONTAINS ('");
+        query.append(String.join("','", idValues));
+        query.append("')");
+    }
+
+    /**
+     * Builds one query per bounded-size chunk of each clause's values. The clauses are alternatives (OR), so the union
+     * of the results of these queries matches a single query with every clause OR'd together. Queries are built lazily
+     * as the iterator is consumed.
+     *
+     * @param queryPrefix - start of every query, ending with " WHERE " or " AND "
+     * @param clauses     - CONTAINS clauses to split into queries
+     * @return - Iterator of VQL queries
+     */
+    public static Iterator<String> buildContainsQueries(String queryPrefix, List<ContainsClause> clauses) {
+        return new Iterator<String>() {
+            private final Iterator<ContainsClause> clauseIterator = clauses.iterator();
+            private ContainsClause clause;
+            private Iterator<String> values = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!values.hasNext() && clauseIterator.hasNext()) {
+                    clause = clauseIterator.next();
+                    values = clause.getValues().iterator();
+                }
+                return values.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                StringBuilder query = new StringBuilder(queryPrefix);
+                query.append(clause.getField()).append(" CONTAINS ('");
+                int containsLength = 0;
+                boolean first = true;
+                while (values.hasNext() && (first || containsLength < MAX_CONTAINS_LENGTH)) {
+                    String value = values.next();
+                    if (!first) {
+                        query.append("','");
+                    }
+                    query.append(value);
+                    containsLength += value.length() + 3;
+                    first = false;
+                }
+                query.append("')");
+                return query.toString();
+            }
+        };
+    }
+
+    /**
+     * Builds the queries selecting records by a WHERE predicate and by CONTAINS clauses. The predicate query comes
+     * first, followed by the queries of buildContainsQueries; the union of their results is the selected data. With
+     * neither a predicate nor clauses, the query is returned unchanged.
+     *
+     * @param query     - query selecting every record
+     * @param connector - " WHERE " or " AND ", whichever continues the query
+     * @param predicate - WHERE predicate, or null
+     * @param clauses   - CONTAINS clauses to split into queries
+     * @return - Iterator of VQL queries
+     */
+    public static Iterator<String> buildSelectionQueries(String query, String connector, String predicate, List<ContainsClause> clauses) {
+        if (predicate == null) {
+            return clauses.isEmpty() ? Collections.singletonList(query).iterator() : buildContainsQueries(query + connector, clauses);
+        }
+
+        String predicateQuery = query + connector + predicate;
+        Iterator<String> containsQueries = buildContainsQueries(query + connector, clauses);
+        return new Iterator<String>() {
+            private boolean predicateQueried = false;
+
+            @Override
+            public boolean hasNext() {
+                return !predicateQueried || containsQueries.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!predicateQueried) {
+                    predicateQueried = true;
+                    return predicateQuery;
+                }
+                return containsQueries.next();
+            }
+        };
+    }
+
+    /**
+     * A field and the values it must contain
+     */
+    public static class ContainsClause {
+        private final String field;
+        private final Iterable<String> values;
+
+        public ContainsClause(String field, Iterable<String> values) {
+            this.field = field;
+            this.values = values;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Iterable<String> getValues() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import com.veeva.vault.tools.client.Client;
+import com.veeva.vault.vapil.api.model.response.QueryResponse;
+import com.veeva.vault.vapil.api.request.QueryRequest;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Producer side of a query/delete pipeline. A producer task pages through the results of a VQL query into a bounded
+ * queue while the consumer iterates the pages. The producer blocks when the queue is full, so memory stays flat however
+ * many pages the query returns.
+ * <p>
+ * With a prefetch depth above 1, and when the server's next page link carries a page offset, the producer derives the
+ * links for the following pages from the total and page size and keeps that many page requests in flight at once.
+ * Pages are still queued in order. Otherwise it follows the next page links one at a time.
+ */
+public class QueryPagePipeline implements Iterator<List<QueryResponse.QueryResult>>, Closeable {
+    private static Logger logger = Logger.getLogger(QueryPagePipeline.class);
+    private static final List<QueryResponse.QueryResult> END_OF_PAGES = new ArrayList<>();
+
+    /**
+     * Shape of a next page link that offsets can be derived from: the query's page path with a single pageoffset
+     * parameter. Any other link is followed as returned.
+     */
+    private static final Pattern PAGE_OFFSET = Pattern.compile("^(/api/v[0-9.]+/query/[^?]+\\?(?:[^&]+&)*pageoffset=)(\\d{1,9})((?:&[^&]+)*)$");
+    private static final AtomicBoolean offsetFallbackLogged = new AtomicBoolean(false);
+
+    private final BlockingQueue<List<QueryResponse.QueryResult>> pages;
+    private final int prefetchDepth;
+    private final ExecutorService producerExecutor;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean failed = false;
+    private List<QueryResponse.QueryResult> nextPage;
+
+    /**
+     * Starts paging through the query results on the provided executor
+     *
+     * @param query            - VQL query to execute
+     * @param queueCapacity    - maximum number of fetched pages waiting to be consumed
+     * @param prefetchDepth    - maximum number of page requests in flight at once
+     * @param producerExecutor - executor to run the producer and page requests on; must not be saturated by consumers
+     */
+    public QueryPagePipeline(String query, int queueCapacity, int prefetchDepth, ExecutorService producerExecutor) {
+        this.pages = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.prefetchDepth = Math.max(1, prefetchDepth);
+        this.producerExecutor = producerExecutor;
+        producerExecutor.submit(() -> fetchPages(query));
+    }
+
+    /**
+     * Executes the query and adds each page of results to the queue, followed by the end of pages marker
+     *
+     * @param query - VQL query to execute
+     */
+    private void fetchPages(String query) {
+        try {
+            QueryResponse queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class).query(query));
+
+            if (queryResponse == null || queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE")) {
+                failed = true;
+            } else if (queryResponse.getData().size() > 0) {
+
+                if (!enqueue(queryResponse.getData())) {
+                    return;
+                }
+
+                if (queryResponse.isPaginated() && queryResponse.getResponseDetails().hasNextPage()
+                        && prefetchDepth > 1 && fetchPagesByOffset(queryResponse.getResponseDetails())) {
+                    return;
+                }
+
+                if (queryResponse.isPaginated()) {
+
+                    while (queryResponse != null && queryResponse.getResponseDetails().hasNextPage()) {
+                        String nextPage = queryResponse.getResponseDetails().getNextPage();
+                        queryResponse = Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class).queryByPage(nextPage));
+
+                        if (queryResponse != null && !queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE")) {
+                            if (!enqueue(queryResponse.getData())) {
+                                return;
+                            }
+                        } else {
+                            logger.error("Unable to retrieve page of query results");
+                            failed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Unexpected error querying data: " + e.getMessage());
+            failed = true;
+        } finally {
+            enqueue(END_OF_PAGES);
+        }
+    }
+
+    /**
+     * Requests the remaining pages by offset, keeping up to prefetchDepth requests in flight, and queues them in order.
+     * The next page link format is not a documented contract, so offsets are only derived from a link of the expected
+     * shape whose offset is one page in. Paging stops at the first page that fails, so no page after a gap is queued.
+     *
+     * @param responseDetails - response details of the first page
+     * @return - False if the next page link or response details do not support offsets, and nothing was requested
+     */
+    private boolean fetchPagesByOffset(QueryResponse.ResponseDetails responseDetails) throws InterruptedException {
+        Matcher matcher = matchPageOffset(responseDetails.getNextPage(), responseDetails.getPageSize());
+        Integer total = responseDetails.getTotal();
+        Integer pageSize = responseDetails.getPageSize();
+        if (matcher == null || total == null) {
+            if (offsetFallbackLogged.compareAndSet(false, true)) {
+                logger.info("Next page links do not have the expected shape; Following them one page at a time");
+            }
+            return false;
+        }
+
+        int offset = Integer.parseInt(matcher.group(2));
+        Deque<Future<QueryResponse>> pageRequests = new ArrayDeque<>();
+        while (offset < total || !pageRequests.isEmpty()) {
+            while (pageRequests.size() < prefetchDepth && offset < total) {
+                String page = matcher.group(1) + offset + matcher.group(3);
+                pageRequests.add(producerExecutor.submit(() -> Client.execute(() -> Client.getVaultClient().newRequest(QueryRequest.class).queryByPage(page))));
+                offset += pageSize;
+            }
+
+            try {
+                QueryResponse queryResponse = pageRequests.poll().get();
+                if (queryResponse != null && !queryResponse.getResponseStatus().equalsIgnoreCase("FAILURE")) {
+                    if (!enqueue(queryResponse.getData())) {
+                        cancel(pageRequests);
+                        return true;
+                    }
+                } else {
+                    logger.error("Unable to retrieve page of query results");
+                    failed = true;
+                    cancel(pageRequests);
+                    return true;
+                }
+            } catch (ExecutionException e) {
+                logger.error("Unexpected error retrieving page of query results: " + e.getCause().getMessage());
+                failed = true;
+                cancel(pageRequests);
+                return true;
+            } catch (InterruptedException e) {
+                cancel(pageRequests);
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param nextPage - next page link of the first page
+     * @param pageSize - page size of the query
+     * @return - matcher over the link, with the part before the offset, the offset and the part after it as groups 1
+     * to 3, or null if offsets cannot be derived from the link
+     */
+    static Matcher matchPageOffset(String nextPage, Integer pageSize) {
+        if (nextPage == null || pageSize == null || pageSize <= 0 || nextPage.indexOf("pageoffset=") != nextPage.lastIndexOf("pageoffset=")) {
+            return null;
+        }
+        Matcher matcher = PAGE_OFFSET.matcher(nextPage);
+        if (!matcher.matches() || Integer.parseInt(matcher.group(2)) != pageSize) {
+            return null;
+        }
+        return matcher;
+    }
+
+    private static void cancel(Deque<Future<QueryResponse>> pageRequests) {
+        for (Future<QueryResponse> pageRequest : pageRequests) {
+            pageRequest.cancel(true);
+        }
+    }
+
+    /**
+     * Waits for space in the queue and adds the page
+     *
+     * @return - False if the pipeline was closed or interrupted before the page was added, otherwise True
+     */
+    private boolean enqueue(List<QueryResponse.QueryResult> page) {
+        try {
+            while (!closed.get()) {
+                if (pages.offer(page, 1, TimeUnit.SECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the next page to be fetched
+     *
+     * @return - True if there is another page, False once every page has been consumed
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextPage == null) {
+            try {
+                nextPage = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed = true;
+                close();
+                return false;
+            }
+        }
+        return nextPage != END_OF_PAGES;
+    }
+
+    @Override
+    public List<QueryResponse.QueryResult> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<QueryResponse.QueryResult> page = nextPage;
+        nextPage = null;
+        return page;
+    }
+
+    /**
+     * @return - True if the query and every page of its results were retrieved; only final once every page has been
+     * consumed
+     */
+    public boolean isComplete() {
+        return !failed;
+    }
+
+    /**
+     * @return - the ids of every record across all remaining pages, consumed page by page as they are iterated
+     */
+    public Iterable<String> ids() {
+        return () -> new Iterator<String>() {
+            private Iterator<QueryResponse.QueryResult> pageIterator = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!pageIterator.hasNext() && QueryPagePipeline.this.hasNext()) {
+                    pageIterator = QueryPagePipeline.this.next().iterator();
+                }
+                return pageIterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pageIterator.next().get("id").toString();
+            }
+        };
+    }
+
+    /**
+     * Stops the producer; any pages not yet consumed are discarded
+     */
+    @Override
+    public void close() {
+        closed.set(true);
+        pages.clear();
+    }
+}
@@ -0,0 +1,258 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact, append-only store of record ids. Ids are packed into byte chunks as a one byte length followed by the id's
+ * ASCII bytes, instead of being held as QueryResult maps. Once the shared heap budget is exceeded, full chunks are
+ * spilled to a temporary file, which is read back a chunk at a time for iteration. Iteration returns ids in insertion
+ * order.
+ */
+public class RecordIdStore implements Iterable<String>, Closeable {
+    private static Logger logger = Logger.getLogger(RecordIdStore.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_ID_LENGTH = 255;
+
+    private final HeapBudget heapBudget;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int chunkPosition = CHUNK_SIZE;
+    private int size = 0;
+    private File spillFile;
+    private FileChannel spillChannel;
+    private long spillLength = 0;
+
+    /**
+     * @param heapBudget - heap budget shared by all stores in this run
+     */
+    public RecordIdStore(HeapBudget heapBudget) {
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Appends an id to the store
+     *
+     * @param id - record id
+     */
+    public synchronized void add(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.US_ASCII);
+        if (idBytes.length == 0 || idBytes.length > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Record id must be 1 to " + MAX_ID_LENGTH + " characters [" + id + "]");
+        }
+
+        if (chunkPosition + idBytes.length + 1 > CHUNK_SIZE) {
+            if (heapBudget.reserve(CHUNK_SIZE) && !chunks.isEmpty()) {
+                spill();
+            }
+            chunks.add(new byte[CHUNK_SIZE]);
+            chunkPosition = 0;
+        }
+
+        byte[] chunk = chunks.get(chunks.size() - 1);
+        chunk[chunkPosition++] = (byte) idBytes.length;
+        System.arraycopy(idBytes, 0, chunk, chunkPosition, idBytes.length);
+        chunkPosition += idBytes.length;
+        size++;
+    }
+
+    /**
+     * @return - number of ids in the store
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Writes every in-memory chunk to the spill file and releases it from the heap budget. A chunk is only partially
+     * filled when its next id did not fit, and a zero length byte marks where its ids end.
+     */
+    private void spill() {
+        try {
+            if (spillChannel == null) {
+                spillFile = File.createTempFile("vault-data-tools-ids-", ".bin");
+                spillFile.deleteOnExit();
+                spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+                logger.debug("Spilling record ids to [" + spillFile.getAbsolutePath() + "]");
+            }
+
+            for (int i = 0; i < chunks.size(); i++) {
+                byte[] chunk = chunks.get(i);
+                int used = usedLength(chunk, i == chunks.size() - 1 ? chunkPosition : CHUNK_SIZE);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, used);
+                while (buffer.hasRemaining()) {
+                    spillLength += spillChannel.write(buffer, spillLength);
+                }
+            }
+            heapBudget.release((long) chunks.size() * CHUNK_SIZE);
+            chunks.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to spill record ids to disk", e);
+        }
+    }
+
+    /**
+     * @return - number of bytes in the chunk holding ids, up to the first zero length marker
+     */
+    private static int usedLength(byte[] chunk, int limit) {
+        int position = 0;
+        while (position < limit && chunk[position] != 0) {
+            position += (chunk[position] & 0xFF) + 1;
+        }
+        return position;
+    }
+
+    /**
+     * Iterates the ids in insertion order: spilled ids first, then in-memory ids. Spilled ids are read with positional
+     * reads into a single chunk sized buffer per iterator, rather than memory-mapped, since Java 8 cannot unmap a
+     * buffer before the spill file is closed and deleted. The store must not be modified while iterating.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private long filePosition = 0;
+            private ByteBuffer readBuffer;
+            private int chunkIndex = 0;
+            private int position = 0;
+            private final byte[] idBytes = new byte[MAX_ID_LENGTH];
+
+            @Override
+            public boolean hasNext() {
+                if (filePosition < spillLength) {
+                    return true;
+                }
+                while (chunkIndex < chunks.size()) {
+                    byte[] chunk = chunks.get(chunkIndex);
+                    int limit = chunkIndex == chunks.size() - 1 ? chunkPosition : CHUNK_SIZE;
+                    if (position < limit && chunk[position] != 0) {
+                        return true;
+                    }
+                    chunkIndex++;
+                    position = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                if (filePosition < spillLength) {
+                    // Refill whenever the next id is not completely in the buffer
+                    if (readBuffer == null || !readBuffer.hasRemaining()
+                            || readBuffer.remaining() < (readBuffer.get(readBuffer.position()) & 0xFF) + 1) {
+                        fill();
+                    }
+                    int length = readBuffer.get() & 0xFF;
+                    readBuffer.get(idBytes, 0, length);
+                    filePosition += length + 1;
+                    return new String(idBytes, 0, length, StandardCharsets.US_ASCII);
+                }
+
+                byte[] chunk = chunks.get(chunkIndex);
+                int length = chunk[position] & 0xFF;
+                String id = new String(chunk, position + 1, length, StandardCharsets.US_ASCII);
+                position += length + 1;
+                return id;
+            }
+
+            /**
+             * Reads the spill file from the next id into the buffer
+             */
+            private void fill() {
+                if (readBuffer == null) {
+                    readBuffer = ByteBuffer.allocate(CHUNK_SIZE);
+                }
+                readBuffer.clear();
+                readBuffer.limit((int) Math.min(CHUNK_SIZE, spillLength - filePosition));
+                try {
+                    while (readBuffer.hasRemaining()) {
+                        if (spillChannel.read(readBuffer, filePosition + readBuffer.position()) < 0) {
+                            throw new IOException("Unexpected end of spill file");
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to read spilled record ids", e);
+                }
+                readBuffer.flip();
+            }
+        };
+    }
+
+    /**
+     * Releases the heap budget and deletes the spill file
+     */
+    @Override
+    public synchronized void close() {
+        heapBudget.release((long) chunks.size() * CHUNK_SIZE);
+        chunks.clear();
+        chunkPosition = CHUNK_SIZE;
+        size = 0;
+
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                logger.debug("Unable to close spill file: " + e.getMessage());
+            }
+            if (!spillFile.delete()) {
+                logger.debug("Unable to delete spill file [" + spillFile.getAbsolutePath() + "]");
+            }
+            spillChannel = null;
+            spillLength = 0;
+        }
+    }
+
+    /**
+     * Heap budget shared by the record id stores of a run
+     */
+    public static class HeapBudget {
+        private final long limitBytes;
+        private final AtomicLong usedBytes = new AtomicLong();
+
+        /**
+         * @param limitBytes - bytes of chunk data kept on the heap before stores start spilling to disk
+         */
+        public HeapBudget(long limitBytes) {
+            this.limitBytes = limitBytes;
+        }
+
+        /**
+         * Reserves heap for a new chunk
+         *
+         * @return - True if the budget is now exceeded and the caller should spill, otherwise False
+         */
+        boolean reserve(long bytes) {
+            return usedBytes.addAndGet(bytes) > limitBytes;
+        }
+
+        void release(long bytes) {
+            usedBytes.addAndGet(-bytes);
+        }
+    }
+}
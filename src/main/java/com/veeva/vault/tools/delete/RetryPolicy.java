@@ -0,0 +1,120 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import com.veeva.vault.vapil.api.model.response.VaultResponse;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which failed deletes are retried, and how long to wait before each retry. Waits grow exponentially with the
+ * attempt number, and are randomized between half and all of that delay so concurrent workers do not retry in
+ * lockstep.
+ */
+public class RetryPolicy {
+    private static final long BASE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Error types that are expected to succeed when the request is sent again
+     */
+    private static final Set<String> TRANSIENT_ERRORS = new HashSet<>(Arrays.asList(
+            "API_LIMIT_EXCEEDED",
+            "RACE_CONDITION",
+            "OPERATION_IN_PROGRESS",
+            "UNEXPECTED_ERROR"));
+
+    /**
+     * Record-level error types that may succeed once the rest of the tier is deleted, in addition to transient errors.
+     * Vault rejects deleting a record that is still referenced by another record, which can happen between objects
+     * in a cycle.
+     */
+    private static final Set<String> REQUEUE_ERRORS = new HashSet<>(Arrays.asList(
+            "OPERATION_NOT_ALLOWED"));
+
+    private final int maxRetries;
+
+    /**
+     * @param maxRetries - number of times a batch or record is retried after its first attempt
+     */
+    public RetryPolicy(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param attempts - number of attempts made so far
+     * @return - True if another attempt is allowed
+     */
+    public boolean canRetry(int attempts) {
+        return attempts <= maxRetries;
+    }
+
+    /**
+     * A top-level response is retried when there was no response at all (e.g. a timeout) or every error is transient
+     *
+     * @param resp - the bulk response, or null if the request failed
+     * @return - True if the whole batch should be sent again
+     */
+    public boolean isTransient(VaultResponse resp) {
+        return resp == null || hasOnlyErrors(resp, TRANSIENT_ERRORS, null);
+    }
+
+    /**
+     * @param resp - an individual record's response
+     * @return - True if the record should be requeued and deleted again after the rest of its tier
+     */
+    public boolean isRequeueable(VaultResponse resp) {
+        return hasOnlyErrors(resp, TRANSIENT_ERRORS, REQUEUE_ERRORS);
+    }
+
+    private static boolean hasOnlyErrors(VaultResponse resp, Set<String> errorTypes, Set<String> moreErrorTypes) {
+        if (resp.getErrors() == null || resp.getErrors().isEmpty()) {
+            return false;
+        }
+        for (VaultResponse.APIResponseError error : resp.getErrors()) {
+            String type = error.getType() == null ? "" : error.getType().toUpperCase();
+            if (!errorTypes.contains(type) && (moreErrorTypes == null || !moreErrorTypes.contains(type))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits before the given retry
+     *
+     * @param retry - retry number, starting at 1
+     * @return - False if interrupted while waiting, otherwise True
+     */
+    public boolean backoff(int retry) {
+        try {
+            Thread.sleep(delayMillis(retry));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param retry - retry number, starting at 1
+     * @return - randomized wait before the retry, between half and all of its exponential delay
+     */
+    long delayMillis(int retry) {
+        long ceiling = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(retry - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+}
@@ -0,0 +1,255 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+
+package com.veeva.vault.tools.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.veeva.vault.tools.client.Client;
+import com.veeva.vault.vapil.api.model.metadata.VaultObject;
+import com.veeva.vault.vapil.api.model.response.DocumentTypesResponse;
+import com.veeva.vault.vapil.api.model.response.MetaDataObjectBulkResponse;
+import com.veeva.vault.vapil.api.model.response.MetaDataObjectResponse;
+import com.veeva.vault.vapil.api.request.DocumentRequest;
+import com.veeva.vault.vapil.api.request.MetaDataRequest;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieves object and document type metadata, backed by an on-disk cache keyed by Vault DNS. Cached entries older
+ * than the configured TTL, or all entries when a refresh is requested, are retrieved from Vault again.
+ */
+public class MetadataService {
+    private static Logger logger = Logger.getLogger(MetadataService.class);
+    private static final String OBJECTS = "objects";
+    private static final String OBJECT_METADATA = "object_metadata";
+    private static final String DOCUMENT_TYPES = "document_types";
+    private static final String CACHED_AT = "cached_at";
+    private static final String VALUE = "value";
+    public static final int DEFAULT_TTL_MINUTES = 1440;
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+    private static File cacheFile;
+    private static long ttlMillis = TimeUnit.MINUTES.toMillis(DEFAULT_TTL_MINUTES);
+    private static final ConcurrentHashMap<String, JsonNode> cache = new ConcurrentHashMap<>();
+    private static volatile boolean modified = false;
+
+    private MetadataService() {
+    }
+
+    /**
+     * Loads the metadata cache for the Vault. A TTL of 0 disables the cache.
+     *
+     * @param vaultDNS   - DNS of the Vault the cache belongs to
+     * @param ttlMinutes - minutes a cached entry is reused for
+     * @param refresh    - True to ignore the cached entries and retrieve them again, replacing the cache
+     */
+    public static void loadCache(String vaultDNS, int ttlMinutes, boolean refresh) {
+        if (ttlMinutes <= 0) {
+            logger.info("Metadata cache disabled");
+            return;
+        }
+        ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+
+        File cacheDirectory = new File(System.getProperty("user.home"), ".vault-data-tools" + File.separator + "metadata-cache");
+        cacheFile = new File(cacheDirectory, vaultDNS.toLowerCase() + ".json");
+
+        if (refresh) {
+            logger.info("Refreshing metadata cache [" + cacheFile.getAbsolutePath() + "]");
+            return;
+        }
+
+        if (cacheFile.exists()) {
+            try {
+                JsonNode cachedMetadata = mapper.readTree(cacheFile);
+                Iterator<Map.Entry<String, JsonNode>> entries = cachedMetadata.fields();
+                while (entries.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = entries.next();
+                    if (entry.getKey().equals(OBJECT_METADATA)) {
+                        Iterator<Map.Entry<String, JsonNode>> objects = entry.getValue().fields();
+                        while (objects.hasNext()) {
+                            Map.Entry<String, JsonNode> object = objects.next();
+                            cache.put(objectMetadataKey(object.getKey()), object.getValue());
+                        }
+                    } else {
+                        cache.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                logger.info("Loaded metadata cache [" + cacheFile.getAbsolutePath() + "]");
+            } catch (IOException e) {
+                logger.warn("Unable to read metadata cache; metadata will be retrieved from Vault: " + e.getMessage());
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the metadata cache to disk, if anything was retrieved from Vault during this run
+     */
+    public static void saveCache() {
+        if (cacheFile == null || !modified) {
+            return;
+        }
+
+        ObjectNode cachedMetadata = mapper.createObjectNode();
+        ObjectNode objectMetadata = cachedMetadata.putObject(OBJECT_METADATA);
+        for (Map.Entry<String, JsonNode> entry : cache.entrySet()) {
+            if (entry.getKey().startsWith(OBJECT_METADATA + ".")) {
+                objectMetadata.set(entry.getKey().substring(OBJECT_METADATA.length() + 1), entry.getValue());
+            } else {
+                cachedMetadata.set(entry.getKey(), entry.getValue());
+            }
+        }
+
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            File tempFile = new File(cacheFile.getPath() + ".tmp");
+            mapper.writeValue(tempFile, cachedMetadata);
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Unable to write metadata cache [" + cacheFile.getAbsolutePath() + "]: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves all objects in the Vault
+     *
+     * @return - List of objects, or null if they could not be retrieved
+     */
+    public static List<VaultObject> retrieveObjectCollection() {
+        List<VaultObject> objects = getCachedList(OBJECTS, VaultObject.class);
+        if (objects != null) {
+            return objects;
+        }
+
+        MetaDataObjectBulkResponse objectResponse = Client.execute(() -> Client.getVaultClient().newRequest(MetaDataRequest.class)
+                .retrieveObjectCollection());
+
+        if (objectResponse == null || !objectResponse.isSuccessful()) {
+            logger.error("Unable to retrieve object collection");
+            return null;
+        }
+
+        putCachedValue(OBJECTS, objectResponse.getObjects());
+        return objectResponse.getObjects();
+    }
+
+    /**
+     * Retrieves the metadata for a single object. Safe to call from multiple threads.
+     *
+     * @param objectName - name of the object
+     * @return - the object's metadata, or null if it could not be retrieved
+     */
+    public static VaultObject retrieveObjectMetadata(String objectName) {
+        JsonNode cachedValue = getCachedValue(objectMetadataKey(objectName));
+        if (cachedValue != null) {
+            try {
+                return mapper.treeToValue(cachedValue, VaultObject.class);
+            } catch (IOException e) {
+                logger.debug("Ignoring unreadable cached metadata for object [" + objectName + "]");
+            }
+        }
+
+        MetaDataObjectResponse metaDataObjectResponse = Client.execute(() -> Client.getVaultClient().newRequest(MetaDataRequest.class)
+                .retrieveObjectMetadata(objectName));
+
+        if (metaDataObjectResponse == null || metaDataObjectResponse.getObject() == null) {
+            logger.error("Unable to retrieve metadata for object [" + objectName + "]");
+            return null;
+        }
+
+        putCachedValue(objectMetadataKey(objectName), metaDataObjectResponse.getObject());
+        return metaDataObjectResponse.getObject();
+    }
+
+    /**
+     * Retrieves all document types in the Vault
+     *
+     * @return - List of document types, or null if they could not be retrieved
+     */
+    public static List<DocumentTypesResponse.DocumentType> retrieveAllDocumentTypes() {
+        List<DocumentTypesResponse.DocumentType> documentTypes = getCachedList(DOCUMENT_TYPES, DocumentTypesResponse.DocumentType.class);
+        if (documentTypes != null) {
+            return documentTypes;
+        }
+
+        DocumentTypesResponse documentTypesResponse = Client.execute(() -> Client.getVaultClient().newRequest(DocumentRequest.class)
+                .retrieveAllDocumentTypes());
+
+        if (documentTypesResponse == null || !documentTypesResponse.isSuccessful()) {
+            logger.error("Unable to retrieve document types");
+            return null;
+        }
+
+        putCachedValue(DOCUMENT_TYPES, documentTypesResponse.getTypes());
+        return documentTypesResponse.getTypes();
+    }
+
+    private static String objectMetadataKey(String objectName) {
+        return OBJECT_METADATA + "." + objectName;
+    }
+
+    /**
+     * @return - the cached value for the key, or null if not cached or older than the TTL
+     */
+    private static JsonNode getCachedValue(String key) {
+        JsonNode entry = cache.get(key);
+        if (entry == null || System.currentTimeMillis() - entry.path(CACHED_AT).asLong() > ttlMillis) {
+            return null;
+        }
+        return entry.get(VALUE);
+    }
+
+    private static <T> List<T> getCachedList(String key, Class<T> elementClass) {
+        JsonNode cachedValue = getCachedValue(key);
+        if (cachedValue instanceof ArrayNode) {
+            try {
+                List<T> values = new ArrayList<>();
+                for (JsonNode element : cachedValue) {
+                    values.add(mapper.treeToValue(element, elementClass));
+                }
+                return values;
+            } catch (IOException e) {
+                logger.debug("Ignoring unreadable cached metadata [" + key + "]");
+            }
+        }
+        return null;
+    }
+
+    private static void putCachedValue(String key, Object value) {
+        if (cacheFile == null) {
+            return;
+        }
+        try {
+            ObjectNode entry = mapper.createObjectNode();
+            entry.put(CACHED_AT, System.currentTimeMillis());
+            entry.set(VALUE, mapper.valueToTree(value));
+            cache.put(key, entry);
+            modified = true;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Unable to cache metadata [" + key + "]: " + e.getMessage());
+        }
+    }
+}
@@ -3,46 +3,208 @@ package com.veeva.vault.tools.services;
 import com.veeva.vault.vapil.api.model.metadata.VaultObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SortService {
+
     /**
-     * Recursively sorts the provided objects based on their dependencies. This sorting method ignores cycles.
+     * Sorts the provided objects based on their dependencies, so that every object appears after the objects that
+     * reference it (child/inbound reference relationships). Relationships to objects that are not in the map are
+     * ignored.
      *
-     * @param objectName                - name of the current object
      * @param objectRelationshipHashMap - HashMap containing the objects and a list of their relationships
-     * @param visited                   - list of objects that have already been sorted
-     * @param sorted                    - sorted list of objects to delete
+     * @return - SortResult containing the sorted objects, their dependency tiers, and any cycles
      */
-    public static void topologicalSort(String objectName, HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap, ArrayList<String> visited, ArrayList<String> sorted) {
-
-        /*
-        If this object is already in visited array, we either:
-            A) Have a circular dependency - ignore these and let them fail
-            B) Have already processed this object - ignore these since we've already sorted it and its children
-         */
-        if (!visited.contains(objectName)) {
-
-            visited.add(objectName);
+    public static SortResult sort(HashMap<String, List<VaultObject.Relationship>> objectRelationshipHashMap) {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
 
-            // Recursively process child/inbound reference relationships
-            List<VaultObject.Relationship> objectRelationships = objectRelationshipHashMap.get(objectName);
-            if (objectRelationships != null) {
+        for (Map.Entry<String, List<VaultObject.Relationship>> entry : objectRelationshipHashMap.entrySet()) {
+            List<String> objectDependencies = new ArrayList<>();
 
-                for (VaultObject.Relationship relationship : objectRelationships) {
+            if (entry.getValue() != null) {
+                for (VaultObject.Relationship relationship : entry.getValue()) {
 
                     String relationshipType = relationship.getRelationshipType();
                     if (relationshipType.equals("reference_inbound") || relationshipType.equals("child")) {
+                        objectDependencies.add(relationship.getObjectReference().getName());
+                    }
+                }
+            }
+            dependencies.put(entry.getKey(), objectDependencies);
+        }
+
+        return sort(dependencies);
+    }
+
+    /**
+     * Sorts the provided objects based on their dependencies using an iterative version of Tarjan's strongly connected
+     * components algorithm. Runs in O(V+E) time without recursion, so deep reference chains cannot overflow the stack.
+     * Objects that depend on each other in a cycle are reported as a single component, placed in the same tier.
+     *
+     * @param dependencies - map of each object to the objects that must be deleted before it
+     * @return - SortResult containing the sorted objects, their dependency tiers, and any cycles
+     */
+    public static SortResult sort(Map<String, ? extends Collection<String>> dependencies) {
+        int size = dependencies.size();
+
+        // Index the objects so the graph can be walked with primitive arrays
+        String[] names = new String[size];
+        HashMap<String, Integer> indexes = new HashMap<>(size * 2);
+        for (String objectName : dependencies.keySet()) {
+            names[indexes.size()] = objectName;
+            indexes.put(objectName, indexes.size());
+        }
 
-                        topologicalSort(relationship.getObjectReference().getName(), objectRelationshipHashMap, visited, sorted);
+        int[][] edges = new int[size][];
+        for (int node = 0; node < size; node++) {
+            Collection<String> objectDependencies = dependencies.get(names[node]);
+            int[] nodeEdges = new int[objectDependencies == null ? 0 : objectDependencies.size()];
+            int edgeCount = 0;
 
+            if (objectDependencies != null) {
+                for (String dependency : objectDependencies) {
+                    Integer dependencyIndex = indexes.get(dependency);
+                    if (dependencyIndex != null) {
+                        nodeEdges[edgeCount++] = dependencyIndex;
                     }
                 }
             }
+            edges[node] = edgeCount == nodeEdges.length ? nodeEdges : Arrays.copyOf(nodeEdges, edgeCount);
+        }
+
+        int[] discovery = new int[size];
+        int[] lowLink = new int[size];
+        int[] component = new int[size];
+        int[] edgeCursor = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] sccStack = new int[size];
+        int[] callStack = new int[size];
+        Arrays.fill(discovery, -1);
+
+        List<String> sorted = new ArrayList<>(size);
+        List<List<String>> tiers = new ArrayList<>();
+        List<List<String>> cycles = new ArrayList<>();
+        List<Integer> componentTiers = new ArrayList<>();
+        int sccSize = 0;
+        int counter = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (discovery[root] != -1) {
+                continue;
+            }
+
+            int callDepth = 0;
+            callStack[callDepth++] = root;
+            discovery[root] = lowLink[root] = counter++;
+            sccStack[sccSize++] = root;
+            onStack[root] = true;
+
+            while (callDepth > 0) {
+                int node = callStack[callDepth - 1];
+
+                if (edgeCursor[node] < edges[node].length) {
+                    int next = edges[node][edgeCursor[node]++];
+
+                    if (discovery[next] == -1) {
+                        // Descend into the dependency
+                        discovery[next] = lowLink[next] = counter++;
+                        sccStack[sccSize++] = next;
+                        onStack[next] = true;
+                        callStack[callDepth++] = next;
+                    } else if (onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], discovery[next]);
+                    }
+                    continue;
+                }
+
+                // All dependencies processed; pop the node and emit its component if it is the root of one
+                callDepth--;
+                if (callDepth > 0) {
+                    int parent = callStack[callDepth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+
+                if (lowLink[node] == discovery[node]) {
+                    int componentIndex = componentTiers.size();
+                    List<String> members = new ArrayList<>();
+                    int member;
+                    do {
+                        member = sccStack[--sccSize];
+                        onStack[member] = false;
+                        component[member] = componentIndex;
+                        members.add(names[member]);
+                    } while (member != node);
+                    Collections.reverse(members);
 
-            sorted.add(objectName);
+                    // Every component this one depends on has already been emitted, so its tier is known
+                    int tier = 0;
+                    boolean selfReference = false;
+                    for (String memberName : members) {
+                        for (int dependency : edges[indexes.get(memberName)]) {
+                            if (component[dependency] != componentIndex) {
+                                tier = Math.max(tier, componentTiers.get(component[dependency]) + 1);
+                            } else if (members.size() == 1) {
+                                selfReference = true;
+                            }
+                        }
+                    }
+
+                    componentTiers.add(tier);
+                    while (tiers.size() <= tier) {
+                        tiers.add(new ArrayList<>());
+                    }
+                    tiers.get(tier).addAll(members);
+                    sorted.addAll(members);
+
+                    if (members.size() > 1 || selfReference) {
+                        cycles.add(members);
+                    }
+                }
+            }
         }
+
+        return new SortResult(sorted, tiers, cycles);
     }
 
+    /**
+     * Result of sorting objects by their dependencies
+     */
+    public static class SortResult {
+        private final List<String> sorted;
+        private final List<List<String>> tiers;
+        private final List<List<String>> cycles;
+
+        SortResult(List<String> sorted, List<List<String>> tiers, List<List<String>> cycles) {
+            this.sorted = sorted;
+            this.tiers = tiers;
+            this.cycles = cycles;
+        }
+
+        /**
+         * @return - objects in delete order; each object appears after the objects that depend on it
+         */
+        public List<String> getSorted() {
+            return sorted;
+        }
+
+        /**
+         * @return - objects grouped by dependency level; objects in a tier only depend on objects in earlier tiers
+         */
+        public List<List<String>> getTiers() {
+            return tiers;
+        }
+
+        /**
+         * @return - strongly connected components containing a cycle, including objects that reference themselves
+         */
+        public List<List<String>> getCycles() {
+            return cycles;
+        }
+    }
 }
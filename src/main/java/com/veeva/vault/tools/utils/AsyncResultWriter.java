@@ -0,0 +1,203 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes output rows on a dedicated thread. Workers hand rows to a bounded ring buffer and return immediately; they
+ * only block when the buffer is full. The writer thread drains everything buffered at once, writes it, and flushes
+ * once per drained group (group commit).
+ * <p>
+ * Commit callbacks are queued in line with the rows. They run on the writer thread once every row queued before them is
+ * flushed and synced to disk, so progress can be recorded elsewhere only after its output is durable. Every callback of
+ * a drained group runs after the same single sync, followed once by the group commit listener, if one is set, so the
+ * callbacks can record their progress without forcing it to disk one by one.
+ */
+public class AsyncResultWriter implements Closeable {
+    private static Logger logger = Logger.getLogger(AsyncResultWriter.class);
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final Object END_OF_ROWS = new Object();
+
+    private final String fileName;
+    private final ResultWriter resultWriter;
+    private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private final Thread writerThread;
+    private volatile boolean closed = false;
+    private volatile Runnable groupCommitListener;
+    private boolean failed = false;
+
+    /**
+     * Starts the writer thread
+     *
+     * @param fileName     - output file the rows are written to
+     * @param resultWriter - writer of the output file, used only from the writer thread
+     */
+    public AsyncResultWriter(String fileName, ResultWriter resultWriter) {
+        this.fileName = fileName;
+        this.resultWriter = resultWriter;
+        this.writerThread = new Thread(this::drain, "result-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a row to be written. Blocks only while the buffer is full.
+     *
+     * @param row - output row
+     */
+    public void write(String[] row) {
+        enqueue(row);
+    }
+
+    /**
+     * Queues a callback to run once every row queued before it is durably written
+     *
+     * @param onCommitted - callback, run on the writer thread
+     */
+    public void commit(Runnable onCommitted) {
+        enqueue(onCommitted);
+    }
+
+    /**
+     * Sets a listener run on the writer thread after the commit callbacks of each drained group, for example to sync
+     * the progress those callbacks recorded once per group
+     *
+     * @param groupCommitListener - listener, or null for none
+     */
+    public void setGroupCommitListener(Runnable groupCommitListener) {
+        this.groupCommitListener = groupCommitListener;
+    }
+
+    private void enqueue(Object entry) {
+        if (closed) {
+            throw new IllegalStateException("Result writer is closed [" + fileName + "]");
+        }
+        try {
+            buffer.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while writing to file [" + fileName + "]");
+        }
+    }
+
+    /**
+     * Writer thread: drains the buffer in groups until the end of rows marker. After a write error, rows are discarded
+     * and commit callbacks are no longer run, since their rows can no longer be made durable.
+     */
+    private void drain() {
+        List<Object> group = new ArrayList<>(BUFFER_CAPACITY);
+        List<Runnable> callbacks = new ArrayList<>();
+        boolean end = false;
+
+        while (!end) {
+            try {
+                group.add(buffer.take());
+            } catch (InterruptedException e) {
+                // Only close ends the writer thread; keep draining so workers never block on a full buffer
+                continue;
+            }
+            buffer.drainTo(group);
+            long startTime = System.nanoTime();
+            int rows = 0;
+
+            for (Object entry : group) {
+                if (entry == END_OF_ROWS) {
+                    end = true;
+                } else if (failed) {
+                    continue;
+                } else if (entry instanceof String[]) {
+                    try {
+                        resultWriter.writeNext((String[]) entry);
+                        rows++;
+                    } catch (IOException e) {
+                        fail(e);
+                    }
+                } else {
+                    callbacks.add((Runnable) entry);
+                }
+            }
+
+            if (!failed) {
+                try {
+                    if (!callbacks.isEmpty() || end) {
+                        resultWriter.sync();
+                    } else {
+                        resultWriter.flush();
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+            Metrics.recordPhase("write", fileName, System.nanoTime() - startTime, rows);
+
+            if (!failed && !callbacks.isEmpty()) {
+                for (Runnable callback : callbacks) {
+                    runCallback(callback);
+                }
+                Runnable listener = groupCommitListener;
+                if (listener != null) {
+                    runCallback(listener);
+                }
+            }
+            group.clear();
+            callbacks.clear();
+        }
+    }
+
+    private void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error after writing to file: " + e.getMessage());
+        }
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        logger.error("Error writing to file [" + fileName + "]; No further results will be written: " + e.getMessage());
+    }
+
+    /**
+     * Writes every queued row, syncs the file to disk and closes it
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        enqueue(END_OF_ROWS);
+        closed = true;
+
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                // Finish the durable flush before honoring the interrupt
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            resultWriter.close();
+        } catch (IOException e) {
+            logger.error("Unexpected error closing file [" + fileName + "]: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact, insertion-ordered set of strings. Values are packed into byte chunks as a two byte length followed by the
+ * value's UTF-8 bytes, and indexed by an open addressing hash table of chunk offsets, instead of being held as String
+ * objects in a HashSet. Not thread safe.
+ */
+public class CompactStringSet implements Iterable<String> {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_VALUE_LENGTH = 0xFFFF;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private final List<Integer> chunkLimits = new ArrayList<>();
+    private int chunkPosition = 0;
+
+    // Offset of each value, plus one so that 0 marks an empty slot, and the hash of each value
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Adds a value, unless the set already contains it
+     *
+     * @param value - value to add
+     * @return - True if the value was added, False if it was already in the set
+     */
+    public boolean add(String value) {
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        if (valueBytes.length > MAX_VALUE_LENGTH) {
+            throw new IllegalArgumentException("Value must be at most " + MAX_VALUE_LENGTH + " bytes");
+        }
+
+        int hash = value.hashCode();
+        int slot = findSlot(valueBytes, hash);
+        if (slots[slot] != 0) {
+            return false;
+        }
+
+        slots[slot] = append(valueBytes) + 1;
+        hashes[slot] = hash;
+        size++;
+        if (size * 2 > slots.length) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(String value) {
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        return slots[findSlot(valueBytes, value.hashCode())] != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return - the slot holding the value, or the empty slot where it belongs
+     */
+    private int findSlot(byte[] valueBytes, int hash) {
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0 && (hashes[slot] != hash || !matches(slots[slot] - 1, valueBytes))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(long offset, byte[] valueBytes) {
+        byte[] chunk = chunks.get((int) (offset >>> 32));
+        int position = (int) offset;
+        int length = ((chunk[position] & 0xFF) << 8) | (chunk[position + 1] & 0xFF);
+        if (length != valueBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk[position + 2 + i] != valueBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs the value into the current chunk, starting a new chunk if it does not fit
+     *
+     * @return - offset of the value: chunk index in the high 32 bits, position in the low 32 bits
+     */
+    private long append(byte[] valueBytes) {
+        int entryLength = valueBytes.length + 2;
+        if (chunks.isEmpty() || chunkPosition + entryLength > chunks.get(chunks.size() - 1).length) {
+            if (!chunks.isEmpty()) {
+                chunkLimits.set(chunks.size() - 1, chunkPosition);
+            }
+            chunks.add(new byte[Math.max(CHUNK_SIZE, entryLength)]);
+            chunkLimits.add(0);
+            chunkPosition = 0;
+        }
+
+        int chunkIndex = chunks.size() - 1;
+        byte[] chunk = chunks.get(chunkIndex);
+        long offset = ((long) chunkIndex << 32) | chunkPosition;
+        chunk[chunkPosition++] = (byte) (valueBytes.length >>> 8);
+        chunk[chunkPosition++] = (byte) valueBytes.length;
+        System.arraycopy(valueBytes, 0, chunk, chunkPosition, valueBytes.length);
+        chunkPosition += valueBytes.length;
+        chunkLimits.set(chunkIndex, chunkPosition);
+        return offset;
+    }
+
+    private void resize() {
+        long[] oldSlots = slots;
+        int[] oldHashes = hashes;
+        slots = new long[oldSlots.length * 2];
+        hashes = new int[oldSlots.length * 2];
+
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = oldSlots[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of String.hashCode, which clusters for values sharing a prefix
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Releases the memory held by the set
+     */
+    public void clear() {
+        chunks.clear();
+        chunkLimits.clear();
+        chunkPosition = 0;
+        slots = new long[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Iterates the values in insertion order. The set must not be modified while iterating.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int chunkIndex = 0;
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (chunkIndex < chunks.size()) {
+                    if (position < chunkLimits.get(chunkIndex)) {
+                        return true;
+                    }
+                    chunkIndex++;
+                    position = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                byte[] chunk = chunks.get(chunkIndex);
+                int length = ((chunk[position] & 0xFF) << 8) | (chunk[position + 1] & 0xFF);
+                String value = new String(chunk, position + 2, length, StandardCharsets.UTF_8);
+                position += length + 2;
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes output rows as CSV, optionally gzip compressed
+ */
+public class CsvResultWriter extends ResultWriter {
+    private final CSVWriter csvWriter;
+
+    /**
+     * @param fileName   - output file the rows are written to
+     * @param compressed - True to gzip the output
+     */
+    public CsvResultWriter(String fileName, boolean compressed) throws IOException {
+        super(fileName, compressed);
+        this.csvWriter = new CSVWriter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void writeNext(String[] row) {
+        csvWriter.writeNext(row);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        csvWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        csvWriter.close();
+    }
+}
@@ -2,20 +2,32 @@ package com.veeva.vault.tools.utils;
 
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
-import com.opencsv.CSVWriter;
+import com.veeva.vault.tools.cli.DataToolOptions;
 import org.apache.log4j.Logger;
 
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 
 public class FileUtil {
 
     private static Logger logger = Logger.getLogger(FileUtil.class);
+    private static final int INPUT_BUFFER_SIZE = 1024 * 1024;
+    private static DataToolOptions.OutputFormat outputFormat = DataToolOptions.OutputFormat.CSV;
+
+    public static DataToolOptions.OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Sets the format of the output files created from here on
+     *
+     * @param format - output format; CSV if null
+     */
+    public static void setOutputFormat(DataToolOptions.OutputFormat format) {
+        outputFormat = format == null ? DataToolOptions.OutputFormat.CSV : format;
+    }
 
     /**
      * Determines if user-provided input file exists
@@ -35,30 +47,31 @@ public class FileUtil {
     }
 
     /**
-     * Reads the input file CSV and loads the data into a HashMap
+     * Reads the input file CSV and loads the data into an InputFileData. Rows are streamed, and repeated idParamValues
+     * of the same object or document type are only kept once.
      *
      * @param inputFile - File provided by user input
-     * @return - HashMap containing the contents of the input file
+     * @return - InputFileData containing the contents of the input file
      */
-    public static HashMap<String, List<String>> getInputFileData(File inputFile) {
-        // Reads the CSV and returns the contents
-        try (CSVReader csvReader = new CSVReaderBuilder(new FileReader(inputFile)).withSkipLines(1).build()) {
+    public static InputFileData getInputFileData(File inputFile) {
+        // Reads the CSV one row at a time
+        try (CSVReader csvReader = new CSVReaderBuilder(new BufferedReader(new FileReader(inputFile), INPUT_BUFFER_SIZE)).withSkipLines(1).build()) {
 
-            HashMap<String, List<String>> inputData = new HashMap<>();
+            InputFileData inputData = new InputFileData();
             String[] nextRow;
 
             while ((nextRow = csvReader.readNext()) != null) {
                 if (nextRow.length != 0) {
 
-                    // If there are multiple rows for this object, append the idParamValue (in column 3) to current list
-                    if (inputData.containsKey(nextRow[0]) && nextRow.length >= 3) {
-                        inputData.get(nextRow[0]).add(nextRow[2]);
+                    if (nextRow.length >= 3 && nextRow[1].trim().equalsIgnoreCase(InputFileData.WHERE)) {
+                        // Third column is a VQL predicate selecting the records
+                        inputData.addPredicate(nextRow[0], nextRow[2]);
                     } else if (nextRow.length >= 3) {
                         // First column is the object name, which is our key
                         // Second and third column are the idParam and idParamValue
-                        inputData.put(nextRow[0], new ArrayList<>(Arrays.asList(nextRow).subList(1, 3)));
+                        inputData.add(nextRow[0], nextRow[1], nextRow[2]);
                     } else { // Case where input file does not have idParam/idParamValue columns
-                        inputData.put(nextRow[0], new ArrayList<>());
+                        inputData.put(nextRow[0]);
                     }
                 }
             }
@@ -68,6 +81,9 @@ public class FileUtil {
                 return null;
             }
 
+            if (inputData.getDuplicateValueCount() > 0) {
+                logger.info("Ignored " + inputData.getDuplicateValueCount() + " duplicate idParamValues in input file");
+            }
             return inputData;
 
         } catch (Exception e) {
@@ -77,60 +93,86 @@ public class FileUtil {
     }
 
     /**
-     * Initializes a CSVWriter
+     * Initializes a ResultWriter in the selected output format
      *
-     * @param fileName - output file the CSVWriter will write to
-     * @return - initialized CSVWriter, or null if failed to initialize
+     * @param fileName - output file the ResultWriter will write to
+     * @return - initialized ResultWriter, or null if failed to initialize
      */
-    public static CSVWriter getCsvWriter(String fileName) {
+    public static ResultWriter getCsvWriter(String fileName) {
         try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-            return new CSVWriter(writer);
+            switch (outputFormat) {
+                case CSV_GZIP:
+                    return new CsvResultWriter(fileName, true);
+                case JSONL:
+                    return new JsonLinesResultWriter(fileName, false);
+                case JSONL_GZIP:
+                    return new JsonLinesResultWriter(fileName, true);
+                default:
+                    return new CsvResultWriter(fileName, false);
+            }
         } catch (IOException e) {
             logger.error("Unexpected error creating CSVWriter: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Initializes an AsyncResultWriter, which writes rows in the selected output format on its own thread
+     *
+     * @param fileName - output file the AsyncResultWriter will write to
+     * @return - initialized AsyncResultWriter, or null if failed to initialize
+     */
+    public static AsyncResultWriter getResultWriter(String fileName) {
+        ResultWriter resultWriter = getCsvWriter(fileName);
+        if (resultWriter == null) {
+            return null;
+        }
+        return new AsyncResultWriter(fileName, resultWriter);
+    }
+
     /**
      * Writes output data to CSV
      *
-     * @param outputData - data to write to CSV
-     * @param csvWriter  - CSVWriter used to write output
+     * @param outputData   - data to write to CSV
+     * @param resultWriter - ResultWriter used to write output
      */
-    public static void writeDataToCsv(List<String[]> outputData, CSVWriter csvWriter) {
+    public static void writeDataToCsv(List<String[]> outputData, ResultWriter resultWriter) {
         try {
             for (String[] row : outputData) {
-                csvWriter.writeNext(row);
+                resultWriter.writeNext(row);
             }
-            csvWriter.flush();
+            resultWriter.flush();
         } catch (IOException e) {
             logger.error("Error writing to file: " + e.getMessage());
         }
     }
 
     /**
-     * Flush and close the provided CSVWriter
+     * Flush and close the provided ResultWriter
      *
-     * @param csvWriter - CSVWriter to flush and close
+     * @param resultWriter - ResultWriter to flush and close
      */
-    public static void closeCsvWriter(CSVWriter csvWriter) {
+    public static void closeCsvWriter(ResultWriter resultWriter) {
         try {
-            csvWriter.flush();
-            csvWriter.close();
+            resultWriter.flush();
+            resultWriter.close();
         } catch (IOException e) {
             logger.error("Unexpected error closing CSVWriter: " + e.getMessage());
         }
     }
 
     /**
-     * Appends current DateTime to provided file name
+     * Appends current DateTime to provided file name. A .csv extension is replaced with the extension of the selected
+     * output format.
      *
      * @param fileName - output file name
      * @return - formatted output file name
      */
     public static String formatFileName(String fileName) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+        if (fileName.endsWith(".csv")) {
+            fileName = fileName.substring(0, fileName.length() - ".csv".length()) + outputFormat.getExtension();
+        }
         return formatter.format(LocalDateTime.now()) + "-" + fileName;
     }
 }
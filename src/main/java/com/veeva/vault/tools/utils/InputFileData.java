@@ -0,0 +1,199 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Contents of an input file: the objects or document types it lists, each with an optional idParam and the distinct
+ * idParamValues provided for it, and optional VQL WHERE predicates. Values are held in a CompactStringSet per name and
+ * handed out as an Iterable, so QueryBuilder can split them into bounded-size queries without copying them into lists.
+ * <p>
+ * A row whose idParam is WHERE provides a predicate instead of a value, e.g.
+ * {@code product__v,WHERE,created_date__v < '2025-01-01T00:00:00.000Z'}. The records of a name are those matching any
+ * of its idParamValues or predicates.
+ */
+public class InputFileData {
+    public static final String WHERE = "WHERE";
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long duplicateValues = 0;
+
+    /**
+     * Adds a name without idParamValues, replacing any values provided for it on earlier rows
+     *
+     * @param name - object name or document type name
+     */
+    void put(String name) {
+        Entry entry = new Entry(null);
+        entry.selectAll = true;
+        entries.put(name, entry);
+    }
+
+    /**
+     * Adds an idParamValue for a name. The first row of a name sets its idParam.
+     *
+     * @param name         - object name or document type name
+     * @param idParam      - field identifying the records
+     * @param idParamValue - value of the field
+     */
+    void add(String name, String idParam, String idParamValue) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            entry = new Entry(idParam);
+            entries.put(name, entry);
+        } else if (entry.selectAll) {
+            // Listed without an idParam first; every record is selected
+            return;
+        } else if (entry.idParam == null) {
+            // Only predicates so far
+            entry.idParam = idParam;
+        }
+
+        if (!entry.values.add(idParamValue)) {
+            duplicateValues++;
+        }
+    }
+
+    /**
+     * Adds a WHERE predicate for a name
+     *
+     * @param name      - object name or document type name
+     * @param predicate - VQL predicate, without the WHERE keyword
+     * @throws IllegalArgumentException - if the predicate is not a single, self-contained condition
+     */
+    void addPredicate(String name, String predicate) {
+        String problem = VqlPredicate.validate(predicate);
+        if (problem != null) {
+            throw new IllegalArgumentException("Invalid WHERE predicate for " + name + " [" + predicate + "]: " + problem);
+        }
+
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            entry = new Entry(null);
+            entries.put(name, entry);
+        } else if (entry.selectAll) {
+            return;
+        }
+        entry.predicates.add(predicate.trim());
+    }
+
+    public boolean containsKey(String name) {
+        return entries.containsKey(name);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return - names listed in the input file, in file order
+     */
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * @return - number of idParamValues dropped because they repeated a value of the same name
+     */
+    public long getDuplicateValueCount() {
+        return duplicateValues;
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - True if the input provides an idParam and at least one idParamValue for the name
+     */
+    public boolean hasIdParamValues(String name) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.idParam != null && !entry.idParam.isEmpty() && !entry.values.isEmpty();
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - the WHERE predicates of the name OR'd together, each in parentheses; null if none were provided
+     */
+    public String getPredicate(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null || entry.predicates.isEmpty()) {
+            return null;
+        }
+        StringBuilder predicate = new StringBuilder();
+        for (String entryPredicate : entry.predicates) {
+            if (predicate.length() > 0) {
+                predicate.append(" OR ");
+            }
+            predicate.append('(').append(entryPredicate).append(')');
+        }
+        return entry.predicates.size() == 1 ? predicate.toString() : "(" + predicate + ")";
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - True if the input narrows the records of the name with idParamValues or predicates
+     */
+    public boolean isFiltered(String name) {
+        return hasIdParamValues(name) || getPredicate(name) != null;
+    }
+
+    /**
+     * @return - names with at least one WHERE predicate
+     */
+    public List<String> getPredicateNames() {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!entry.getValue().predicates.isEmpty()) {
+                names.add(entry.getKey());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - field identifying the records, or null if none was provided
+     */
+    public String getIdParam(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.idParam;
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - distinct idParamValues in file order; empty if none were provided
+     */
+    public Iterable<String> getIdParamValues(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? Collections.emptyList() : entry.values;
+    }
+
+    /**
+     * @param name - object name or document type name
+     * @return - number of distinct idParamValues
+     */
+    public int getIdParamValueCount(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? 0 : entry.values.size();
+    }
+
+    private static class Entry {
+        private String idParam;
+        private boolean selectAll = false;
+        private final CompactStringSet values = new CompactStringSet();
+        private final List<String> predicates = new ArrayList<>(1);
+
+        Entry(String idParam) {
+            this.idParam = idParam;
+        }
+    }
+}
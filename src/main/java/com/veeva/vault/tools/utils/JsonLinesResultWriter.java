@@ -0,0 +1,61 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes output rows as JSON Lines, one object per row. The header row is not written; its columns are used as the
+ * field names of every following row.
+ */
+public class JsonLinesResultWriter extends ResultWriter {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final JsonGenerator generator;
+    private String[] header;
+
+    /**
+     * @param fileName   - output file the rows are written to
+     * @param compressed - True to gzip the output
+     */
+    public JsonLinesResultWriter(String fileName, boolean compressed) throws IOException {
+        super(fileName, compressed);
+        this.generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
+        // Rows are separated by newlines only; the default root value separator would start each line with a space
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void writeNext(String[] row) throws IOException {
+        if (header == null) {
+            header = row;
+            return;
+        }
+
+        generator.writeStartObject();
+        for (int i = 0; i < row.length && i < header.length; i++) {
+            generator.writeStringField(header[i], row[i]);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
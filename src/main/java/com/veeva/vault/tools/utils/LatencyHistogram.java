@@ -0,0 +1,113 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with exponentially sized buckets. Each bucket is about 9% wider than the one before,
+ * from 100 microseconds to about two hours, so percentiles are accurate to within one bucket at any scale while the
+ * histogram stays a fixed size. Longer samples share a last, unbounded bucket. Safe to update from multiple threads.
+ */
+public class LatencyHistogram {
+    private static final double FIRST_BOUND_MICROS = 100;
+    private static final double GROWTH = Math.pow(2, 0.125);
+    private static final int BUCKETS = 208;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Records one sample
+     *
+     * @param nanos   - latency of the sample
+     * @param records - records processed by the sample
+     * @param failed  - True if the sample failed
+     */
+    public void record(long nanos, long records, boolean failed) {
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        this.records.addAndGet(records);
+        if (failed) {
+            failures.incrementAndGet();
+        }
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Retry until the larger value is stored
+        }
+    }
+
+    private static int bucket(long nanos) {
+        double micros = nanos / 1000.0;
+        if (micros <= FIRST_BOUND_MICROS) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log(micros / FIRST_BOUND_MICROS) / Math.log(GROWTH));
+        return Math.min(bucket, BUCKETS);
+    }
+
+    private static double upperBoundMillis(int bucket) {
+        return FIRST_BOUND_MICROS * Math.pow(GROWTH, bucket) / 1000.0;
+    }
+
+    /**
+     * @param quantile - quantile between 0 and 1, e.g. 0.95
+     * @return - upper bound in milliseconds of the bucket holding the quantile, at most the largest sample
+     */
+    public double getPercentileMillis(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket <= BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                // The last bucket has no upper bound
+                return bucket == BUCKETS ? getMaxMillis() : Math.min(upperBoundMillis(bucket), getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public double getSumSeconds() {
+        return sumNanos.get() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return - records processed per second of recorded time
+     */
+    public double getRecordsPerSecond() {
+        double seconds = getSumSeconds();
+        return seconds == 0 ? 0 : records.get() / seconds;
+    }
+}
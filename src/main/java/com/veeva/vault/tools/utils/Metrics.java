@@ -0,0 +1,259 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.veeva.vault.tools.client.Client;
+import com.veeva.vault.tools.client.RequestGovernor;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime metrics of a run: a latency histogram for every Vault API endpoint, and for every phase of every object or
+ * document type (metadata, gather, delete, count, write). Samples are always recorded; once started, the metrics are
+ * exported periodically and at the end of the run to a JSON file and a Prometheus text format file.
+ */
+public class Metrics {
+    private static Logger logger = Logger.getLogger(Metrics.class);
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private static final Map<String, LatencyHistogram> calls = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, LatencyHistogram>> phases = new ConcurrentHashMap<>();
+    private static final long startTime = System.currentTimeMillis();
+    private static ScheduledExecutorService exporter;
+    private static File jsonFile;
+    private static File prometheusFile;
+
+    private Metrics() {
+    }
+
+    /**
+     * Records a Vault API call
+     *
+     * @param endpoint - endpoint of the call
+     * @param nanos    - latency of the call
+     * @param failed   - True if the call returned no response or an error
+     */
+    public static void recordCall(String endpoint, long nanos, boolean failed) {
+        calls.computeIfAbsent(endpoint, key -> new LatencyHistogram()).record(nanos, 0, failed);
+    }
+
+    /**
+     * Records a phase of the work on an object or document type
+     *
+     * @param phase   - phase of the run, e.g. gather or delete
+     * @param name    - object name or document type name
+     * @param nanos   - time spent in the phase
+     * @param records - records processed in the phase
+     */
+    public static void recordPhase(String phase, String name, long nanos, long records) {
+        phases.computeIfAbsent(phase, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, key -> new LatencyHistogram())
+                .record(nanos, records, false);
+    }
+
+    /**
+     * @param response - response of a Vault API call, or null
+     * @return - endpoint name derived from the response type, e.g. object_record_bulk for ObjectRecordBulkResponse
+     */
+    public static String endpointName(Object response) {
+        if (response == null) {
+            return "unknown";
+        }
+        String name = response.getClass().getSimpleName();
+        if (name.endsWith("Response")) {
+            name = name.substring(0, name.length() - "Response".length());
+        }
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+    /**
+     * Starts exporting the metrics to {fileBaseName}.json and {fileBaseName}.prom every interval, until stop is called
+     *
+     * @param fileBaseName    - path of the metrics files, without extension
+     * @param intervalSeconds - seconds between exports
+     */
+    public static synchronized void start(String fileBaseName, int intervalSeconds) {
+        jsonFile = new File(fileBaseName + ".json");
+        prometheusFile = new File(fileBaseName + ".prom");
+        exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleAtFixedRate(Metrics::export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Writing metrics to [" + jsonFile.getAbsolutePath() + "] and [" + prometheusFile.getAbsolutePath() + "]");
+    }
+
+    /**
+     * Stops the periodic export and writes the final metrics
+     */
+    public static synchronized void stop() {
+        if (exporter == null) {
+            return;
+        }
+        exporter.shutdownNow();
+        exporter = null;
+        export();
+    }
+
+    private static synchronized void export() {
+        try {
+            writeAtomically(jsonFile, Metrics::writeJson);
+            writeAtomically(prometheusFile, Metrics::writePrometheus);
+        } catch (IOException e) {
+            logger.warn("Unable to write metrics: " + e.getMessage());
+        }
+    }
+
+    private interface Content {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes to a temporary file and renames it over the target, so readers never see a partial file
+     */
+    private static void writeAtomically(File file, Content content) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+            content.write(writer);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeJson(Writer writer) throws IOException {
+        RequestGovernor governor = Client.getRequestGovernor();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeNumberField("elapsed_seconds", (System.currentTimeMillis() - startTime) / 1000.0);
+            generator.writeNumberField("requests", governor.getRequestCount());
+            generator.writeNumberField("throttled", governor.getThrottledCount());
+            generator.writeNumberField("concurrency_limit", governor.getConcurrencyLimit());
+            if (governor.getBurstLimitRemaining() != null) {
+                generator.writeNumberField("burst_limit_remaining", governor.getBurstLimitRemaining());
+            }
+            if (governor.getDailyLimitRemaining() != null) {
+                generator.writeNumberField("daily_limit_remaining", governor.getDailyLimitRemaining());
+            }
+
+            generator.writeObjectFieldStart("calls");
+            for (Map.Entry<String, LatencyHistogram> call : new TreeMap<>(calls).entrySet()) {
+                generator.writeFieldName(call.getKey());
+                writeJson(generator, call.getValue());
+            }
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("phases");
+            for (Map.Entry<String, Map<String, LatencyHistogram>> phase : new TreeMap<>(phases).entrySet()) {
+                generator.writeObjectFieldStart(phase.getKey());
+                for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(phase.getValue()).entrySet()) {
+                    generator.writeFieldName(entry.getKey());
+                    writeJson(generator, entry.getValue());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeJson(JsonGenerator generator, LatencyHistogram histogram) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("count", histogram.getCount());
+        generator.writeNumberField("failures", histogram.getFailures());
+        generator.writeNumberField("records", histogram.getRecords());
+        generator.writeNumberField("records_per_second", histogram.getRecordsPerSecond());
+        generator.writeNumberField("total_seconds", histogram.getSumSeconds());
+        generator.writeNumberField("p50_ms", histogram.getPercentileMillis(0.5));
+        generator.writeNumberField("p95_ms", histogram.getPercentileMillis(0.95));
+        generator.writeNumberField("p99_ms", histogram.getPercentileMillis(0.99));
+        generator.writeNumberField("max_ms", histogram.getMaxMillis());
+        generator.writeEndObject();
+    }
+
+    private static void writePrometheus(Writer writer) throws IOException {
+        RequestGovernor governor = Client.getRequestGovernor();
+        StringBuilder text = new StringBuilder();
+        gauge(text, "vault_data_tools_requests_total", "counter", "Vault API calls made", governor.getRequestCount());
+        gauge(text, "vault_data_tools_throttled_total", "counter", "Vault API calls made while the limits were low", governor.getThrottledCount());
+        gauge(text, "vault_data_tools_concurrency_limit", "gauge", "Current limit on concurrent Vault API calls", governor.getConcurrencyLimit());
+        if (governor.getBurstLimitRemaining() != null) {
+            gauge(text, "vault_data_tools_burst_limit_remaining", "gauge", "Remaining Vault burst API limit", governor.getBurstLimitRemaining());
+        }
+        if (governor.getDailyLimitRemaining() != null) {
+            gauge(text, "vault_data_tools_daily_limit_remaining", "gauge", "Remaining Vault daily API limit", governor.getDailyLimitRemaining());
+        }
+
+        text.append("# HELP vault_data_tools_call_seconds Latency of Vault API calls\n");
+        text.append("# TYPE vault_data_tools_call_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram> call : new TreeMap<>(calls).entrySet()) {
+            summary(text, "vault_data_tools_call_seconds", "endpoint=\"" + escape(call.getKey()) + "\"", call.getValue());
+        }
+        text.append("# HELP vault_data_tools_call_failures_total Vault API calls that returned no response or an error\n");
+        text.append("# TYPE vault_data_tools_call_failures_total counter\n");
+        for (Map.Entry<String, LatencyHistogram> call : new TreeMap<>(calls).entrySet()) {
+            text.append("vault_data_tools_call_failures_total{endpoint=\"").append(escape(call.getKey())).append("\"} ")
+                    .append(call.getValue().getFailures()).append('\n');
+        }
+
+        text.append("# HELP vault_data_tools_phase_seconds Time spent in each phase per object or document type\n");
+        text.append("# TYPE vault_data_tools_phase_seconds summary\n");
+        StringBuilder records = new StringBuilder();
+        records.append("# HELP vault_data_tools_phase_records_total Records processed in each phase per object or document type\n");
+        records.append("# TYPE vault_data_tools_phase_records_total counter\n");
+        for (Map.Entry<String, Map<String, LatencyHistogram>> phase : new TreeMap<>(phases).entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(phase.getValue()).entrySet()) {
+                String labels = "phase=\"" + escape(phase.getKey()) + "\",name=\"" + escape(entry.getKey()) + "\"";
+                summary(text, "vault_data_tools_phase_seconds", labels, entry.getValue());
+                records.append("vault_data_tools_phase_records_total{").append(labels).append("} ")
+                        .append(entry.getValue().getRecords()).append('\n');
+            }
+        }
+        text.append(records);
+        writer.write(text.toString());
+    }
+
+    private static void gauge(StringBuilder text, String name, String type, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            text.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getPercentileMillis(quantile) / 1000.0).append('\n');
+        }
+        text.append(name).append("_sum{").append(labels).append("} ").append(histogram.getSumSeconds()).append('\n');
+        text.append(name).append("_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,52 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams output rows to a file in one of the supported output formats. The first row written is the header.
+ */
+public abstract class ResultWriter implements Closeable, Flushable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileOutputStream fileOutputStream;
+    protected final OutputStream outputStream;
+
+    /**
+     * Opens the output file
+     *
+     * @param fileName   - output file the rows are written to
+     * @param compressed - True to gzip the output
+     */
+    protected ResultWriter(String fileName, boolean compressed) throws IOException {
+        this.fileOutputStream = new FileOutputStream(fileName);
+        // Sync flush, so every flushed row can be decompressed even if the run stops before the file is closed
+        this.outputStream = compressed ? new GZIPOutputStream(fileOutputStream, BUFFER_SIZE, true) : fileOutputStream;
+    }
+
+    /**
+     * Writes a single row
+     *
+     * @param row - output row; the header if it is the first row written
+     */
+    public abstract void writeNext(String[] row) throws IOException;
+
+    /**
+     * Flushes the written rows and forces them to disk
+     */
+    public void sync() throws IOException {
+        flush();
+        fileOutputStream.getFD().sync();
+    }
+}
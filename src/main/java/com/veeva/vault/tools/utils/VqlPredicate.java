@@ -0,0 +1,85 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Checks VQL WHERE predicates provided in the input file before they are added to a query. This only checks that the
+ * predicate is a single, self-contained condition; Vault validates the fields and values when the query runs.
+ */
+public class VqlPredicate {
+    /**
+     * Keywords that would end the WHERE clause or start another statement
+     */
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+            "SELECT", "FROM", "WHERE", "ORDER", "GROUP", "LIMIT", "SKIP", "PAGESIZE", "PAGEOFFSET", "MAXROWS", "FIND", "UNION"));
+
+    private VqlPredicate() {
+    }
+
+    /**
+     * @param predicate - WHERE predicate, without the WHERE keyword
+     * @return - a description of the problem, or null if the predicate is acceptable
+     */
+    public static String validate(String predicate) {
+        if (predicate == null || predicate.trim().isEmpty()) {
+            return "Predicate is empty";
+        }
+
+        int depth = 0;
+        boolean inQuote = false;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= predicate.length(); i++) {
+            char c = i < predicate.length() ? predicate.charAt(i) : ' ';
+
+            if (inQuote) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '\'') {
+                    inQuote = false;
+                }
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                word.append(c);
+                continue;
+            }
+            if (word.length() > 0) {
+                if (CLAUSE_KEYWORDS.contains(word.toString().toUpperCase(Locale.ROOT))) {
+                    return "Predicate cannot contain " + word.toString().toUpperCase(Locale.ROOT);
+                }
+                word.setLength(0);
+            }
+
+            if (c == '\'') {
+                inQuote = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth < 0) {
+                    return "Predicate has an unmatched closing parenthesis";
+                }
+            } else if (c == ';') {
+                return "Predicate cannot contain ;";
+            }
+        }
+
+        if (inQuote) {
+            return "Predicate has an unterminated string";
+        }
+        if (depth != 0) {
+            return "Predicate has an unmatched opening parenthesis";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,121 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+
+package com.veeva.vault.tools.count;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CountSnapshotStoreTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path home;
+    private String userHome;
+
+    @BeforeEach
+    public void setUp() {
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.setProperty("user.home", userHome);
+    }
+
+    @Test
+    public void reusesSnapshotWhenTotalsAddUp() {
+        assertTrue(CountSnapshotStore.isReusable(70, 30, 100, 100));
+    }
+
+    @Test
+    public void countsEveryTypeAfterDeletionOfUnchangedType() {
+        // An unchanged type lost 5 versions since its snapshot
+        assertFalse(CountSnapshotStore.isReusable(70, 30, 95, 95));
+    }
+
+    @Test
+    public void countsEveryTypeWhenTotalMovesWhileCounting() {
+        // 5 versions of an unchanged type were deleted, and a changed type grew by 5 while it was counted
+        assertFalse(CountSnapshotStore.isReusable(70, 35, 95, 100));
+        assertFalse(CountSnapshotStore.isReusable(70, 30, 100, 105));
+    }
+
+    @Test
+    public void reportsGrowthFromNothingWithoutSnapshotOnlyWhenOthersHaveOne() {
+        CountSnapshotStore store = CountSnapshotStore.load("test.veevavault.com");
+        List<String[]> rows = Collections.singletonList(new String[]{"general__v", "DOCUMENT", "10"});
+        assertTrue(store.delta("documents", DAY, rows).isEmpty());
+
+        store.save("documents", DAY, rows, Collections.emptySet());
+        List<String[]> deltaRows = store.delta("documents", 3 * DAY, Arrays.asList(
+                new String[]{"general__v", "DOCUMENT", "14"},
+                new String[]{"new_type__c", "DOCUMENT", "2"}));
+
+        assertEquals(2, deltaRows.size());
+        assertArrayEquals(new String[]{"general__v", "DOCUMENT", "10", "14", "4", "40.00", "2.00"}, deltaRows.get(0));
+        assertArrayEquals(new String[]{"new_type__c", "DOCUMENT", "", "2", "2", "", ""}, deltaRows.get(1));
+    }
+
+    @Test
+    public void sortsDeltaByGrowthLargestFirst() {
+        CountSnapshotStore store = CountSnapshotStore.load("test.veevavault.com");
+        store.save("objects", DAY, Arrays.asList(
+                new String[]{"a__c", "OBJECT", "100", "false"},
+                new String[]{"b__c", "OBJECT", "100", "false"},
+                new String[]{"c__c", "OBJECT", "0", "false"}), Collections.emptySet());
+
+        List<String[]> deltaRows = store.delta("objects", 2 * DAY, Arrays.asList(
+                new String[]{"a__c", "OBJECT", "90", "false"},
+                new String[]{"b__c", "OBJECT", "150", "false"},
+                new String[]{"c__c", "OBJECT", "5", "false"}));
+
+        assertEquals("b__c", deltaRows.get(0)[0]);
+        assertEquals("c__c", deltaRows.get(1)[0]);
+        assertEquals("", deltaRows.get(1)[5]);
+        assertEquals("a__c", deltaRows.get(2)[0]);
+        assertEquals("-10", deltaRows.get(2)[4]);
+    }
+
+    @Test
+    public void skipsRowsNotNewerThanTheirSnapshot() {
+        CountSnapshotStore store = CountSnapshotStore.load("test.veevavault.com");
+        List<String[]> rows = Collections.singletonList(new String[]{"general__v", "DOCUMENT", "10"});
+        store.save("documents", 2 * DAY, rows, Collections.emptySet());
+
+        assertTrue(store.delta("documents", 2 * DAY, rows).isEmpty());
+    }
+
+    @Test
+    public void keepsOriginalTimeOfReusedRows() {
+        CountSnapshotStore store = CountSnapshotStore.load("test.veevavault.com");
+        store.save("documents", DAY, Collections.singletonList(new String[]{"general__v", "DOCUMENT", "10"}), Collections.emptySet());
+        store.save("documents", 2 * DAY, Collections.singletonList(new String[]{"general__v", "DOCUMENT", "10"}),
+                Collections.singleton("general__v"));
+
+        CountSnapshotStore reloaded = CountSnapshotStore.load("test.veevavault.com");
+        assertEquals(DAY, reloaded.getTakenAt("documents", "general__v"));
+        assertArrayEquals(new String[]{"general__v", "DOCUMENT", "10"}, reloaded.getRow("documents", "general__v", "DOCUMENT"));
+        assertNull(reloaded.getRow("documents", "other__c", "DOCUMENT"));
+    }
+}
@@ -0,0 +1,170 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import com.veeva.vault.tools.utils.CompactStringSet;
+import com.veeva.vault.vapil.api.model.metadata.VaultObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeleteJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void resumesPlanGatheredIdsAndCheckpoints() throws IOException {
+        File file = directory.resolve("delete.journal").toFile();
+        DeleteJournal journal = DeleteJournal.create(file, "OBJECTS");
+        journal.writePlan(plan("parent__c", "child__c"));
+        journal.writeGatheredIds("child__c", ids(1200));
+        journal.writeTierDone(0);
+        journal.commit();
+        journal.close();
+
+        DeleteJournal resumed = DeleteJournal.resume(file);
+
+        assertEquals("OBJECTS", resumed.getDataType());
+        assertEquals(Arrays.asList("parent__c", "child__c"), new ArrayList<>(resumed.getPlan().keySet()));
+        assertTrue(resumed.getPlan().get("child__c").isEmpty());
+        assertTrue(resumed.isGathered("child__c"));
+        assertFalse(resumed.isGathered("parent__c"));
+        assertTrue(resumed.isTierDone(0));
+        assertFalse(resumed.isTierDone(1));
+        assertEquals(ids(1200), readGatheredIds(resumed).get("child__c"));
+        resumed.close();
+    }
+
+    @Test
+    public void skipsDoneIdsOfGatheredObjects() throws IOException {
+        File file = directory.resolve("delete.journal").toFile();
+        DeleteJournal journal = DeleteJournal.create(file, "OBJECTS");
+        journal.writePlan(plan("child__c"));
+        journal.writeGatheredIds("child__c", ids(5));
+        journal.writeDone("child__c", "", Arrays.asList("V1", "V3"));
+        journal.writeDone("child__c", "", Collections.emptyList());
+        journal.commit();
+        journal.close();
+
+        DeleteJournal resumed = DeleteJournal.resume(file);
+
+        assertEquals(Arrays.asList("V0", "V2", "V4"), readGatheredIds(resumed).get("child__c"));
+        // Done ids of gathered objects are released once read back
+        assertTrue(resumed.getDone("child__c", "").isEmpty());
+        resumed.close();
+    }
+
+    @Test
+    public void keepsDoneIdsByDocumentType() throws IOException {
+        File file = directory.resolve("delete.journal").toFile();
+        DeleteJournal journal = DeleteJournal.create(file, "DOCUMENTS");
+        journal.writeDone("documents", "general__v", Arrays.asList("1", "2"));
+        journal.writeDone("documents", "general__v", Collections.singletonList("3"));
+        journal.writeDone("documents", "other__c", Collections.singletonList("4"));
+        journal.writeTypeDone("other__c");
+        journal.close();
+
+        DeleteJournal resumed = DeleteJournal.resume(file);
+
+        CompactStringSet done = resumed.getDone("documents", "general__v");
+        assertEquals(3, done.size());
+        assertTrue(done.contains("3"));
+        assertFalse(done.contains("4"));
+        assertTrue(resumed.isTypeDone("other__c"));
+        assertFalse(resumed.isTypeDone("general__v"));
+        assertNull(resumed.getPlan());
+        resumed.close();
+    }
+
+    @Test
+    public void discardsPartiallyWrittenLastEntry() throws IOException {
+        File file = directory.resolve("delete.journal").toFile();
+        DeleteJournal journal = DeleteJournal.create(file, "OBJECTS");
+        journal.writePlan(plan("child__c"));
+        journal.writeGatheredIds("child__c", ids(3));
+        journal.writeDone("child__c", "", Collections.singletonList("V0"));
+        journal.commit();
+        journal.close();
+        Files.write(file.toPath(), "DONE\tchild__c\t\tV1,V".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        DeleteJournal resumed = DeleteJournal.resume(file);
+
+        assertEquals(Arrays.asList("V1", "V2"), readGatheredIds(resumed).get("child__c"));
+        resumed.writeDone("child__c", "", Collections.singletonList("V1"));
+        resumed.commit();
+        resumed.close();
+
+        // Entries appended after the truncation start on a line of their own
+        DeleteJournal resumedAgain = DeleteJournal.resume(file);
+        assertEquals(Collections.singletonList("V2"), readGatheredIds(resumedAgain).get("child__c"));
+        resumedAgain.close();
+    }
+
+    @Test
+    public void ignoresIdsOfObjectsWhoseGatheringDidNotFinish() throws IOException {
+        File file = directory.resolve("delete.journal").toFile();
+        DeleteJournal journal = DeleteJournal.create(file, "OBJECTS");
+        journal.writePlan(plan("child__c"));
+        journal.close();
+        Files.write(file.toPath(), "IDS\tchild__c\tV0,V1\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        DeleteJournal resumed = DeleteJournal.resume(file);
+
+        assertFalse(resumed.isGathered("child__c"));
+        assertTrue(readGatheredIds(resumed).isEmpty());
+        resumed.close();
+    }
+
+    @Test
+    public void rejectsFileThatIsNotAJournal() throws IOException {
+        File file = directory.resolve("output.csv").toFile();
+        Files.write(file.toPath(), "action,data_type,name,id\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> DeleteJournal.resume(file));
+    }
+
+    private static Map<String, List<VaultObject.Relationship>> plan(String... objects) {
+        Map<String, List<VaultObject.Relationship>> plan = new LinkedHashMap<>();
+        for (String object : objects) {
+            plan.put(object, null);
+        }
+        return plan;
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("V" + i);
+        }
+        return ids;
+    }
+
+    private static Map<String, List<String>> readGatheredIds(DeleteJournal journal) throws IOException {
+        Map<String, List<String>> gatheredIds = new LinkedHashMap<>();
+        journal.readGatheredIds((object, id) -> gatheredIds.computeIfAbsent(object, key -> new ArrayList<>()).add(id));
+        return gatheredIds;
+    }
+}
@@ -0,0 +1,123 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryBuilderTest {
+    private static final String PREFIX = "SELECT id FROM product__v WHERE ";
+
+    @Test
+    public void buildsOneQueryForShortValueList() {
+        List<String> queries = toList(QueryBuilder.buildContainsQueries(PREFIX,
+                Collections.singletonList(new QueryBuilder.ContainsClause("id", Arrays.asList("V1", "V2")))));
+
+        assertEquals(Collections.singletonList(PREFIX + "id CONTAINS ('V1','V2')"), queries);
+    }
+
+    @Test
+    public void splitsLongValueListIntoBoundedQueries() {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            values.add(String.format("V0000000000%05d", i));
+        }
+
+        List<String> queries = toList(QueryBuilder.buildContainsQueries(PREFIX,
+                Collections.singletonList(new QueryBuilder.ContainsClause("id", values))));
+
+        assertTrue(queries.size() > 1);
+        List<String> queriedValues = new ArrayList<>();
+        for (String query : queries) {
+            assertTrue(query.startsWith(PREFIX + "id CONTAINS ('"));
+            assertTrue(query.endsWith("')"));
+            String valueList = query.substring((PREFIX + "id CONTAINS ('").length(), query.length() - 2);
+            // A chunk stops at the first value that reaches the limit
+            assertTrue(valueList.length() < QueryBuilder.MAX_CONTAINS_LENGTH + 20);
+            queriedValues.addAll(Arrays.asList(valueList.split("','")));
+        }
+        assertEquals(values, queriedValues);
+    }
+
+    @Test
+    public void keepsOversizedValueInItsOwnQuery() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < QueryBuilder.MAX_CONTAINS_LENGTH + 1; i++) {
+            longValue.append('x');
+        }
+
+        List<String> queries = toList(QueryBuilder.buildContainsQueries(PREFIX,
+                Collections.singletonList(new QueryBuilder.ContainsClause("name__v", Arrays.asList(longValue.toString(), "short")))));
+
+        assertEquals(2, queries.size());
+        assertEquals(PREFIX + "name__v CONTAINS ('short')", queries.get(1));
+    }
+
+    @Test
+    public void buildsQueriesForEachClauseAndSkipsEmptyOnes() {
+        List<String> queries = toList(QueryBuilder.buildContainsQueries(PREFIX, Arrays.asList(
+                new QueryBuilder.ContainsClause("id", Collections.singletonList("V1")),
+                new QueryBuilder.ContainsClause("parent__c", Collections.emptyList()),
+                new QueryBuilder.ContainsClause("product__c", Collections.singletonList("V2")))));
+
+        assertEquals(Arrays.asList(PREFIX + "id CONTAINS ('V1')", PREFIX + "product__c CONTAINS ('V2')"), queries);
+    }
+
+    @Test
+    public void buildsNoQueriesWithoutValues() {
+        Iterator<String> queries = QueryBuilder.buildContainsQueries(PREFIX, Collections.emptyList());
+
+        assertFalse(queries.hasNext());
+        assertThrows(NoSuchElementException.class, queries::next);
+    }
+
+    @Test
+    public void returnsQueryUnchangedWithoutSelection() {
+        String query = "SELECT id FROM product__v";
+
+        assertEquals(Collections.singletonList(query),
+                toList(QueryBuilder.buildSelectionQueries(query, " WHERE ", null, Collections.emptyList())));
+    }
+
+    @Test
+    public void queriesPredicateBeforeContainsClauses() {
+        String query = "SELECT id FROM documents WHERE type__v = 'General'";
+
+        List<String> queries = toList(QueryBuilder.buildSelectionQueries(query, " AND ", "(status__v = 'Draft')",
+                Collections.singletonList(new QueryBuilder.ContainsClause("id", Arrays.asList("1", "2")))));
+
+        assertEquals(Arrays.asList(
+                query + " AND (status__v = 'Draft')",
+                query + " AND id CONTAINS ('1','2')"), queries);
+    }
+
+    @Test
+    public void queriesPredicateAloneWithoutClauses() {
+        String query = "SELECT id FROM product__v";
+
+        assertEquals(Collections.singletonList(query + " WHERE (name__v = 'A')"),
+                toList(QueryBuilder.buildSelectionQueries(query, " WHERE ", "(name__v = 'A')", Collections.emptyList())));
+    }
+
+    private static List<String> toList(Iterator<String> queries) {
+        List<String> list = new ArrayList<>();
+        queries.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,51 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class QueryPagePipelineTest {
+
+    @Test
+    public void rewritesOffsetOfExpectedNextPageLink() {
+        Matcher matcher = QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pagesize=1000&pageoffset=1000", 1000);
+
+        assertNotNull(matcher);
+        assertEquals("/api/v23.1/query/0001?pagesize=1000&pageoffset=3000", matcher.group(1) + 3000 + matcher.group(3));
+    }
+
+    @Test
+    public void keepsParametersAfterOffset() {
+        Matcher matcher = QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pageoffset=500&pagesize=500&describe=false", 500);
+
+        assertNotNull(matcher);
+        assertEquals("/api/v23.1/query/0001?pageoffset=1000&pagesize=500&describe=false", matcher.group(1) + 1000 + matcher.group(3));
+    }
+
+    @Test
+    public void rejectsOffsetOtherThanPageSize() {
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pagesize=1000&pageoffset=2000", 1000));
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pageoffset=1000", null));
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pageoffset=0", 0));
+    }
+
+    @Test
+    public void rejectsLinksOfAnotherShape() {
+        assertNull(QueryPagePipeline.matchPageOffset(null, 1000));
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pagesize=1000", 1000));
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/objects/0001?pageoffset=1000", 1000));
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pageoffset=1000&pageoffset=1000", 1000));
+        assertNull(QueryPagePipeline.matchPageOffset("/api/v23.1/query/0001?pageoffset=1000#next", 1000));
+    }
+}
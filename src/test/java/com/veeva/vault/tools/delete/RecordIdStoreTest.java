@@ -0,0 +1,117 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecordIdStoreTest {
+    private static final long NO_HEAP = 0;
+    private static final long LARGE_HEAP = 1024L * 1024 * 1024;
+
+    @Test
+    public void iteratesInMemoryIdsInInsertionOrder() {
+        RecordIdStore store = new RecordIdStore(new RecordIdStore.HeapBudget(LARGE_HEAP));
+        List<String> ids = ids(20000, 0);
+        ids.forEach(store::add);
+
+        assertEquals(ids.size(), store.size());
+        assertEquals(ids, toList(store));
+        store.close();
+    }
+
+    @Test
+    public void iteratesSpilledAndInMemoryIdsInInsertionOrder() {
+        RecordIdStore store = new RecordIdStore(new RecordIdStore.HeapBudget(NO_HEAP));
+        // Ids of varying length, so they end at every position of the read buffer
+        List<String> ids = ids(200000, 7);
+        ids.forEach(store::add);
+
+        assertEquals(ids, toList(store));
+        // Each iterator reads the spill file on its own
+        assertEquals(ids, toList(store));
+        store.close();
+    }
+
+    @Test
+    public void iteratesWhileAnotherIteratorIsOpen() {
+        RecordIdStore store = new RecordIdStore(new RecordIdStore.HeapBudget(NO_HEAP));
+        List<String> ids = ids(50000, 3);
+        ids.forEach(store::add);
+
+        Iterator<String> first = store.iterator();
+        Iterator<String> second = store.iterator();
+        for (String id : ids) {
+            assertEquals(id, first.next());
+            assertEquals(id, second.next());
+        }
+        assertFalse(first.hasNext());
+        assertThrows(NoSuchElementException.class, second::next);
+        store.close();
+    }
+
+    @Test
+    public void acceptsLongestId() {
+        RecordIdStore store = new RecordIdStore(new RecordIdStore.HeapBudget(NO_HEAP));
+        String longest = String.join("", Collections.nCopies(255, "x"));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(i % 2 == 0 ? longest : "V" + i);
+        }
+        ids.forEach(store::add);
+
+        assertEquals(ids, toList(store));
+        assertThrows(IllegalArgumentException.class, () -> store.add(longest + "x"));
+        assertThrows(IllegalArgumentException.class, () -> store.add(""));
+        store.close();
+    }
+
+    @Test
+    public void closeEmptiesTheStore() {
+        RecordIdStore store = new RecordIdStore(new RecordIdStore.HeapBudget(NO_HEAP));
+        ids(50000, 0).forEach(store::add);
+        store.close();
+
+        assertTrue(store.isEmpty());
+        assertFalse(store.iterator().hasNext());
+        store.add("V1");
+        assertEquals(Collections.singletonList("V1"), toList(store));
+        store.close();
+    }
+
+    /**
+     * @return - distinct ids, with up to lengthVariation extra characters each
+     */
+    private static List<String> ids(int count, int lengthVariation) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder id = new StringBuilder("V").append(i);
+            for (int j = 0; j < (lengthVariation == 0 ? 0 : i % lengthVariation); j++) {
+                id.append('x');
+            }
+            ids.add(id.toString());
+        }
+        return ids;
+    }
+
+    private static List<String> toList(Iterable<String> values) {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        return list;
+    }
+}
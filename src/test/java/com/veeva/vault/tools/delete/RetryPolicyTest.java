@@ -0,0 +1,98 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.delete;
+
+import com.veeva.vault.vapil.api.model.response.VaultResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyTest {
+    private final RetryPolicy retryPolicy = new RetryPolicy(3);
+
+    @Test
+    public void allowsMaxRetriesAfterFirstAttempt() {
+        assertTrue(retryPolicy.canRetry(1));
+        assertTrue(retryPolicy.canRetry(3));
+        assertFalse(retryPolicy.canRetry(4));
+        assertFalse(new RetryPolicy(0).canRetry(1));
+    }
+
+    @Test
+    public void retriesBatchWithoutResponseOrWithOnlyTransientErrors() {
+        assertTrue(retryPolicy.isTransient(null));
+        assertTrue(retryPolicy.isTransient(response("API_LIMIT_EXCEEDED")));
+        assertTrue(retryPolicy.isTransient(response("race_condition", "UNEXPECTED_ERROR")));
+    }
+
+    @Test
+    public void doesNotRetryBatchWithPermanentOrNoErrors() {
+        assertFalse(retryPolicy.isTransient(response("INVALID_DATA")));
+        assertFalse(retryPolicy.isTransient(response("API_LIMIT_EXCEEDED", "INVALID_DATA")));
+        assertFalse(retryPolicy.isTransient(response("OPERATION_NOT_ALLOWED")));
+        assertFalse(retryPolicy.isTransient(response((String) null)));
+        assertFalse(retryPolicy.isTransient(response()));
+    }
+
+    @Test
+    public void requeuesRecordsStillReferencedOrWithTransientErrors() {
+        assertTrue(retryPolicy.isRequeueable(response("OPERATION_NOT_ALLOWED")));
+        assertTrue(retryPolicy.isRequeueable(response("OPERATION_IN_PROGRESS", "OPERATION_NOT_ALLOWED")));
+        assertFalse(retryPolicy.isRequeueable(response("OPERATION_NOT_ALLOWED", "INVALID_DATA")));
+        assertFalse(retryPolicy.isRequeueable(response()));
+    }
+
+    @Test
+    public void backsOffExponentiallyWithJitterUpToMaximum() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(500, 1000, retryPolicy.delayMillis(1));
+            assertBetween(1000, 2000, retryPolicy.delayMillis(2));
+            assertBetween(4000, 8000, retryPolicy.delayMillis(4));
+            assertBetween(15000, 30000, retryPolicy.delayMillis(6));
+            assertBetween(15000, 30000, retryPolicy.delayMillis(100));
+        }
+    }
+
+    @Test
+    public void stopsWaitingWhenInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(retryPolicy.backoff(1));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static void assertBetween(long minimum, long maximum, long delay) {
+        assertTrue(delay >= minimum && delay <= maximum, delay + " not in [" + minimum + ", " + maximum + "]");
+    }
+
+    private static VaultResponse response(String... errorTypes) {
+        List<VaultResponse.APIResponseError> errors = new ArrayList<>();
+        for (String errorType : errorTypes) {
+            errors.add(new VaultResponse.APIResponseError() {
+                @Override
+                public String getType() {
+                    return errorType;
+                }
+            });
+        }
+        return new VaultResponse() {
+            @Override
+            public List<APIResponseError> getErrors() {
+                return errorTypes.length == 0 ? Collections.emptyList() : errors;
+            }
+        };
+    }
+}
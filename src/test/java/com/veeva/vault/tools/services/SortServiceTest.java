@@ -0,0 +1,148 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SortServiceTest {
+
+    @Test
+    public void sortsChainIntoOneTierPerLevel() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("parent__c", Collections.singletonList("child__c"));
+        dependencies.put("child__c", Collections.singletonList("grandchild__c"));
+        dependencies.put("grandchild__c", Collections.emptyList());
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        assertEquals(Arrays.asList("grandchild__c", "child__c", "parent__c"), result.getSorted());
+        assertEquals(Arrays.asList(
+                Collections.singletonList("grandchild__c"),
+                Collections.singletonList("child__c"),
+                Collections.singletonList("parent__c")), result.getTiers());
+        assertTrue(result.getCycles().isEmpty());
+    }
+
+    @Test
+    public void placesIndependentObjectsInFirstTier() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("a__c", Collections.emptyList());
+        dependencies.put("b__c", Collections.emptyList());
+        dependencies.put("c__c", Arrays.asList("a__c", "b__c"));
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        assertEquals(Arrays.asList(Arrays.asList("a__c", "b__c"), Collections.singletonList("c__c")), result.getTiers());
+    }
+
+    @Test
+    public void groupsCycleIntoOneComponentAndTier() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("x__c", Collections.singletonList("y__c"));
+        dependencies.put("y__c", Collections.singletonList("x__c"));
+        dependencies.put("z__c", Collections.singletonList("x__c"));
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        assertEquals(Collections.singletonList(Arrays.asList("x__c", "y__c")), result.getCycles());
+        assertEquals(Arrays.asList(Arrays.asList("x__c", "y__c"), Collections.singletonList("z__c")), result.getTiers());
+        assertEquals(Arrays.asList("x__c", "y__c", "z__c"), result.getSorted());
+    }
+
+    @Test
+    public void reportsSelfReferenceAsCycle() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("self__c", Collections.singletonList("self__c"));
+        dependencies.put("other__c", Collections.singletonList("self__c"));
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        assertEquals(Collections.singletonList(Collections.singletonList("self__c")), result.getCycles());
+        assertEquals(Arrays.asList(Collections.singletonList("self__c"), Collections.singletonList("other__c")), result.getTiers());
+    }
+
+    @Test
+    public void ignoresDependenciesOutsideTheMap() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("a__c", Arrays.asList("missing__c", "b__c"));
+        dependencies.put("b__c", null);
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        assertEquals(Arrays.asList("b__c", "a__c"), result.getSorted());
+        assertEquals(2, result.getTiers().size());
+    }
+
+    @Test
+    public void sortsDeepChainWithoutRecursion() {
+        int depth = 100000;
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (int i = 0; i < depth; i++) {
+            dependencies.put("object_" + i, i + 1 < depth ? Collections.singletonList("object_" + (i + 1)) : Collections.emptyList());
+        }
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        assertEquals(depth, result.getTiers().size());
+        assertEquals("object_" + (depth - 1), result.getSorted().get(0));
+        assertEquals("object_0", result.getSorted().get(depth - 1));
+    }
+
+    @Test
+    public void placesEveryDependencyInAnEarlierTier() {
+        Random random = new Random(42);
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            List<String> objectDependencies = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                objectDependencies.add("object_" + random.nextInt(500));
+            }
+            dependencies.put("object_" + i, objectDependencies);
+        }
+
+        SortService.SortResult result = SortService.sort(dependencies);
+
+        Map<String, Integer> tierOf = new HashMap<>();
+        Map<String, Integer> cycleOf = new HashMap<>();
+        for (int tier = 0; tier < result.getTiers().size(); tier++) {
+            for (String object : result.getTiers().get(tier)) {
+                tierOf.put(object, tier);
+            }
+        }
+        for (int cycle = 0; cycle < result.getCycles().size(); cycle++) {
+            for (String object : result.getCycles().get(cycle)) {
+                cycleOf.put(object, cycle);
+            }
+        }
+        assertEquals(500, result.getSorted().size());
+        assertEquals(500, tierOf.size());
+
+        for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+            for (String dependency : entry.getValue()) {
+                Integer cycle = cycleOf.get(entry.getKey());
+                if (cycle != null && cycle.equals(cycleOf.get(dependency))) {
+                    assertEquals(tierOf.get(dependency), tierOf.get(entry.getKey()));
+                } else {
+                    assertTrue(tierOf.get(dependency) < tierOf.get(entry.getKey()), entry.getKey() + " -> " + dependency);
+                }
+            }
+        }
+    }
+}
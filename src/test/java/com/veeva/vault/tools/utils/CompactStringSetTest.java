@@ -0,0 +1,125 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactStringSetTest {
+
+    @Test
+    public void addsEachValueOnce() {
+        CompactStringSet set = new CompactStringSet();
+
+        assertTrue(set.isEmpty());
+        assertTrue(set.add("V1"));
+        assertFalse(set.add("V1"));
+        assertTrue(set.add(""));
+        assertFalse(set.add(""));
+        assertEquals(2, set.size());
+        assertTrue(set.contains("V1"));
+        assertTrue(set.contains(""));
+        assertFalse(set.contains("V2"));
+    }
+
+    @Test
+    public void probesPastValuesWithTheSameHash() {
+        // "Aa" and "BB" have the same String.hashCode, as do all their concatenations
+        List<String> colliding = Arrays.asList("AaAa", "AaBB", "BBAa", "BBBB");
+        CompactStringSet set = new CompactStringSet();
+        for (String value : colliding) {
+            assertTrue(set.add(value));
+        }
+
+        for (String value : colliding) {
+            assertTrue(set.contains(value));
+            assertFalse(set.add(value));
+        }
+        assertFalse(set.contains("AaAB"));
+        assertEquals(colliding, toList(set));
+    }
+
+    @Test
+    public void keepsEveryValueAcrossResizes() {
+        CompactStringSet set = new CompactStringSet();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            values.add("0PR00000000" + i);
+            assertTrue(set.add(values.get(i)));
+        }
+
+        assertEquals(values.size(), set.size());
+        for (String value : values) {
+            assertTrue(set.contains(value));
+        }
+        assertFalse(set.contains("0PR00000000" + values.size()));
+        assertEquals(values, toList(set));
+    }
+
+    @Test
+    public void packsValuesAcrossChunks() {
+        char[] large = new char[0xFFFF];
+        Arrays.fill(large, 'x');
+        String largeValue = new String(large);
+        char[] medium = new char[40000];
+        Arrays.fill(medium, 'y');
+        String mediumValue = new String(medium);
+
+        CompactStringSet set = new CompactStringSet();
+        set.add(mediumValue);
+        set.add(largeValue);
+        set.add("\u00dcmlaut \u2713");
+        set.add(mediumValue + "z");
+
+        assertEquals(Arrays.asList(mediumValue, largeValue, "\u00dcmlaut \u2713", mediumValue + "z"), toList(set));
+        assertTrue(set.contains("\u00dcmlaut \u2713"));
+        assertThrows(IllegalArgumentException.class, () -> set.add(largeValue + "x"));
+    }
+
+    @Test
+    public void clearReleasesEveryValue() {
+        CompactStringSet set = new CompactStringSet();
+        for (int i = 0; i < 1000; i++) {
+            set.add("V" + i);
+        }
+        set.clear();
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains("V1"));
+        assertFalse(set.iterator().hasNext());
+        assertTrue(set.add("V1"));
+        assertEquals(Collections.singletonList("V1"), toList(set));
+    }
+
+    @Test
+    public void iteratorThrowsWhenExhausted() {
+        CompactStringSet set = new CompactStringSet();
+        set.add("V1");
+        Iterator<String> iterator = set.iterator();
+        iterator.next();
+
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    private static List<String> toList(Iterable<String> values) {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,114 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InputFileDataTest {
+
+    @Test
+    public void selectsEveryRecordOfNameWithoutValues() {
+        InputFileData inputData = new InputFileData();
+        inputData.put("product__v");
+
+        assertTrue(inputData.containsKey("product__v"));
+        assertFalse(inputData.isFiltered("product__v"));
+        assertFalse(inputData.hasIdParamValues("product__v"));
+        assertNull(inputData.getPredicate("product__v"));
+    }
+
+    @Test
+    public void filtersNameByDistinctValuesInFileOrder() {
+        InputFileData inputData = new InputFileData();
+        inputData.add("product__v", "name__v", "B");
+        inputData.add("product__v", "name__v", "A");
+        inputData.add("product__v", "name__v", "B");
+
+        assertTrue(inputData.isFiltered("product__v"));
+        assertEquals("name__v", inputData.getIdParam("product__v"));
+        assertEquals(Arrays.asList("B", "A"), toList(inputData.getIdParamValues("product__v")));
+        assertEquals(2, inputData.getIdParamValueCount("product__v"));
+        assertEquals(1, inputData.getDuplicateValueCount());
+    }
+
+    @Test
+    public void selectAllRowWinsOverValuesAndPredicates() {
+        InputFileData inputData = new InputFileData();
+        inputData.add("product__v", "id", "V1");
+        inputData.put("product__v");
+        inputData.add("product__v", "id", "V2");
+        inputData.addPredicate("product__v", "name__v = 'A'");
+
+        assertFalse(inputData.isFiltered("product__v"));
+        assertFalse(inputData.getIdParamValues("product__v").iterator().hasNext());
+        assertTrue(inputData.getPredicateNames().isEmpty());
+    }
+
+    @Test
+    public void combinesPredicatesWithOr() {
+        InputFileData inputData = new InputFileData();
+        inputData.addPredicate("product__v", " name__v = 'A' ");
+        assertEquals("(name__v = 'A')", inputData.getPredicate("product__v"));
+        assertTrue(inputData.isFiltered("product__v"));
+        assertFalse(inputData.hasIdParamValues("product__v"));
+
+        inputData.addPredicate("product__v", "name__v = 'B'");
+        inputData.add("product__v", "id", "V1");
+        assertEquals("((name__v = 'A') OR (name__v = 'B'))", inputData.getPredicate("product__v"));
+        assertEquals("id", inputData.getIdParam("product__v"));
+        assertEquals(Collections.singletonList("product__v"), inputData.getPredicateNames());
+    }
+
+    @Test
+    public void rejectsInvalidPredicate() {
+        InputFileData inputData = new InputFileData();
+
+        assertThrows(IllegalArgumentException.class, () -> inputData.addPredicate("product__v", "name__v = 'A' LIMIT 1"));
+        assertFalse(inputData.containsKey("product__v"));
+    }
+
+    @Test
+    public void readsInputFileRows(@TempDir Path directory) throws IOException {
+        File inputFile = directory.resolve("input.csv").toFile();
+        Files.write(inputFile.toPath(), Arrays.asList(
+                "name,idParam,idParamValue",
+                "general__v",
+                "product__v,name__v,Cholecap",
+                "product__v,WHERE,\"name__v = 'Nyaxa'\""), StandardCharsets.UTF_8);
+
+        InputFileData inputData = FileUtil.getInputFileData(inputFile);
+
+        assertEquals(Arrays.asList("general__v", "product__v"), new ArrayList<>(inputData.keySet()));
+        assertFalse(inputData.isFiltered("general__v"));
+        assertEquals(Collections.singletonList("Cholecap"), toList(inputData.getIdParamValues("product__v")));
+        assertEquals("(name__v = 'Nyaxa')", inputData.getPredicate("product__v"));
+    }
+
+    private static List<String> toList(Iterable<String> values) {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,97 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    // Relative width of a bucket
+    private static final double BUCKET_ERROR = Math.pow(2, 0.125);
+
+    @Test
+    public void reportsZeroWithoutSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getPercentileMillis(0.5));
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getRecordsPerSecond());
+    }
+
+    @Test
+    public void reportsPercentilesWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis), 1, false);
+        }
+
+        assertWithinBucket(500, histogram.getPercentileMillis(0.5));
+        assertWithinBucket(950, histogram.getPercentileMillis(0.95));
+        assertWithinBucket(10, histogram.getPercentileMillis(0.01));
+        assertEquals(1000, histogram.getPercentileMillis(1), 0.000001);
+        assertEquals(1000, histogram.getMaxMillis(), 0.000001);
+    }
+
+    @Test
+    public void capsPercentilesAtLargestSample() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(20), 1, false);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(50), 1, false);
+
+        assertEquals(0.05, histogram.getPercentileMillis(0.5), 0.000001);
+
+        histogram.record(TimeUnit.HOURS.toNanos(3), 1, false);
+        assertEquals(TimeUnit.HOURS.toMillis(3), histogram.getPercentileMillis(0.99), 0.000001);
+    }
+
+    @Test
+    public void totalsSamplesRecordsAndFailures() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1500), 500, false);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(500), 300, true);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(800, histogram.getRecords());
+        assertEquals(1, histogram.getFailures());
+        assertEquals(2.0, histogram.getSumSeconds(), 0.000001);
+        assertEquals(400.0, histogram.getRecordsPerSecond(), 0.000001);
+    }
+
+    @Test
+    public void countsEverySampleFromConcurrentThreads() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= 10000; i++) {
+                    histogram.record(TimeUnit.MICROSECONDS.toNanos(i * 10L + offset), 1, false);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, histogram.getCount());
+        assertEquals(80000, histogram.getRecords());
+        assertEquals(100.007, histogram.getMaxMillis(), 0.000001);
+    }
+
+    private static void assertWithinBucket(double expectedMillis, double actualMillis) {
+        assertTrue(actualMillis >= expectedMillis && actualMillis <= expectedMillis * BUCKET_ERROR,
+                actualMillis + " not within one bucket of " + expectedMillis);
+    }
+}
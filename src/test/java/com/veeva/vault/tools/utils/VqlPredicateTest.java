@@ -0,0 +1,57 @@
+/*---------------------------------------------------------------------
+ *	Copyright (c) 2023 Veeva Systems Inc.  All Rights Reserved.
+ *	This code is based on pre-existing content developed and
+ *	owned by Veeva Systems Inc. and may only be used in connection
+ *	with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.tools.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class VqlPredicateTest {
+
+    @Test
+    public void acceptsSelfContainedConditions() {
+        assertNull(VqlPredicate.validate("created_date__v < '2025-01-01T00:00:00.000Z'"));
+        assertNull(VqlPredicate.validate("(status__v = 'draft__c' OR status__v = 'obsolete__c') AND name__v != 'Keep'"));
+        assertNull(VqlPredicate.validate("name__v CONTAINS ('A', 'B')"));
+    }
+
+    @Test
+    public void rejectsEmptyPredicate() {
+        assertEquals("Predicate is empty", VqlPredicate.validate(null));
+        assertEquals("Predicate is empty", VqlPredicate.validate("   "));
+    }
+
+    @Test
+    public void rejectsClauseKeywordsInAnyCase() {
+        assertEquals("Predicate cannot contain ORDER", VqlPredicate.validate("name__v = 'A' order BY id"));
+        assertEquals("Predicate cannot contain LIMIT", VqlPredicate.validate("name__v = 'A' LIMIT 10"));
+        assertEquals("Predicate cannot contain SELECT", VqlPredicate.validate("id CONTAINS (SELECT id FROM product__v)"));
+        assertEquals("Predicate cannot contain PAGESIZE", VqlPredicate.validate("name__v = 'A' PAGESIZE"));
+    }
+
+    @Test
+    public void ignoresKeywordsInsideIdentifiersAndStrings() {
+        assertNull(VqlPredicate.validate("order_number__c = 5"));
+        assertNull(VqlPredicate.validate("from_site__c = 'SELECT * FROM x; LIMIT'"));
+        assertNull(VqlPredicate.validate("name__v = 'It\\'s (open'"));
+    }
+
+    @Test
+    public void rejectsStatementSeparator() {
+        assertEquals("Predicate cannot contain ;", VqlPredicate.validate("name__v = 'A'; id = '1'"));
+    }
+
+    @Test
+    public void rejectsUnbalancedQuotesAndParentheses() {
+        assertEquals("Predicate has an unterminated string", VqlPredicate.validate("name__v = 'A"));
+        assertEquals("Predicate has an unterminated string", VqlPredicate.validate("name__v = 'A\\'"));
+        assertEquals("Predicate has an unmatched opening parenthesis", VqlPredicate.validate("(name__v = 'A'"));
+        assertEquals("Predicate has an unmatched closing parenthesis", VqlPredicate.validate("name__v = 'A') OR (id = '1'"));
+    }
+}